@@ -367,11 +367,4 @@ public class PermissionTestActivity extends AppCompatActivity {
                     granted ? "#4CAF50" : "#FF5722");
         }
     }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        // Log when returning from settings
-        logMessage("📱 App resumed - Check if permissions were enabled in Settings", "#2196F3");
-    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.qdesk.permissionhelper.benchmark;
+
+import android.os.Bundle;
+import androidx.appcompat.app.AppCompatActivity;
+
+/**
+ * Bare host activity for the benchmarks
+ */
+public class BenchmarkActivity extends AppCompatActivity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        setTheme(androidx.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+        super.onCreate(savedInstanceState);
+    }
+}
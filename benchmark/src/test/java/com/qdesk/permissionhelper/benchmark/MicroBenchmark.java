@@ -0,0 +1,130 @@
+package com.qdesk.permissionhelper.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Minimal single-threaded benchmark harness for JVM unit tests.
+ * <p>
+ * Each run warms up, then makes one pass to measure throughput and bytes
+ * allocated per operation, and a second pass that times every operation for
+ * latency percentiles. Results are printed and written to the directory given
+ * by the {@code benchmark.reportDir} system property.
+ * <p>
+ * Results are reports, not regression checks: the only assertion is
+ * {@link #assertAllocationFree}, for paths whose documentation promises it.
+ */
+final class MicroBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private MicroBenchmark() {
+    }
+
+    static Result run(String name, int warmupIterations, int measuredIterations, Runnable operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run();
+        }
+
+        // Pass 1: throughput and allocations, without per-operation timing overhead
+        long allocatedBefore = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredIterations; i++) {
+            operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        // Pass 2: latency distribution
+        long[] samples = new long[measuredIterations];
+        for (int i = 0; i < measuredIterations; i++) {
+            long t0 = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(samples);
+
+        Result result = new Result(name,
+                measuredIterations * 1_000_000_000d / Math.max(elapsed, 1),
+                percentile(samples, 0.50),
+                percentile(samples, 0.90),
+                percentile(samples, 0.99),
+                samples[samples.length - 1],
+                (double) allocated / measuredIterations);
+        result.report();
+        return result;
+    }
+
+    /**
+     * Fail if an operation documented as allocation-free allocates.
+     * Half a byte per op of slack absorbs one-off allocations amortized over the run.
+     */
+    static void assertAllocationFree(Result result) {
+        assertTrue(result + " allocates on an allocation-free path", result.allocBytesPerOp <= 0.5);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    static final class Result {
+        final String name;
+        final double opsPerSecond;
+        final long p50Nanos;
+        final long p90Nanos;
+        final long p99Nanos;
+        final long maxNanos;
+        final double allocBytesPerOp;
+
+        Result(String name, double opsPerSecond, long p50Nanos, long p90Nanos, long p99Nanos,
+               long maxNanos, double allocBytesPerOp) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.allocBytesPerOp = allocBytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: %.0f ops/s, p50=%dns p90=%dns p99=%dns max=%dns, %.1f B/op",
+                    name, opsPerSecond, p50Nanos, p90Nanos, p99Nanos, maxNanos, allocBytesPerOp);
+        }
+
+        private void report() {
+            System.out.println("[benchmark] " + this);
+
+            String reportDir = System.getProperty("benchmark.reportDir");
+            if (reportDir == null) return;
+
+            Properties properties = new Properties();
+            properties.setProperty(name + ".opsPerSecond", String.format(Locale.US, "%.0f", opsPerSecond));
+            properties.setProperty(name + ".p50Nanos", Long.toString(p50Nanos));
+            properties.setProperty(name + ".p90Nanos", Long.toString(p90Nanos));
+            properties.setProperty(name + ".p99Nanos", Long.toString(p99Nanos));
+            properties.setProperty(name + ".maxNanos", Long.toString(maxNanos));
+            properties.setProperty(name + ".allocBytesPerOp", String.format(Locale.US, "%.1f", allocBytesPerOp));
+
+            File dir = new File(reportDir);
+            if (!dir.isDirectory() && !dir.mkdirs()) return;
+            try (Writer writer = new FileWriter(new File(dir, name + ".properties"))) {
+                properties.store(writer, null);
+            } catch (IOException e) {
+                System.out.println("[benchmark] Could not write report for " + name + ": " + e.getMessage());
+            }
+        }
+    }
+}
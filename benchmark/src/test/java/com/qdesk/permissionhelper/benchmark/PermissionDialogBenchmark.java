@@ -0,0 +1,50 @@
+package com.qdesk.permissionhelper.benchmark;
+
+import android.os.Looper;
+
+import com.qdesk.permissionhelper.R;
+import com.qdesk.permissionhelper.ui.DialogViewCache;
+import com.qdesk.permissionhelper.ui.PermissionDialog;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PermissionDialogBenchmark {
+
+    private static final String TITLE = "Camera Access Required";
+    private static final String MESSAGE = "This app needs camera access to take photos and videos.";
+
+    private BenchmarkActivity activity;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(BenchmarkActivity.class).setup().get();
+    }
+
+    @Test
+    public void showAndDismissInflating() {
+        MicroBenchmark.run("permissionDialog.inflate", 50, 300, () -> showAndDismiss(null));
+    }
+
+    @Test
+    public void showAndDismissCached() {
+        DialogViewCache viewCache = new DialogViewCache(activity);
+        MicroBenchmark.run("permissionDialog.cached", 50, 300, () -> showAndDismiss(viewCache));
+    }
+
+    private void showAndDismiss(DialogViewCache viewCache) {
+        PermissionDialog dialog = new PermissionDialog(activity, TITLE, MESSAGE, R.drawable.ic_camera);
+        dialog.setViewCache(viewCache);
+        dialog.show();
+        dialog.dismiss();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,85 @@
+package com.qdesk.permissionhelper.benchmark;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+
+import com.qdesk.permissionhelper.core.PermissionCallback;
+import com.qdesk.permissionhelper.core.PermissionManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowActivity;
+
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PermissionManagerBenchmark {
+
+    private BenchmarkActivity activity;
+    private PermissionManager permissionManager;
+    private int grantedCount;
+    private final Runnable countingAction = () -> grantedCount++;
+
+    private final PermissionCallback countingCallback = new PermissionCallback() {
+        @Override
+        public void onPermissionGranted(String permission) {
+            grantedCount++;
+        }
+
+        @Override
+        public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
+        }
+
+        @Override
+        public void onPermissionCancelled(String permission) {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.buildActivity(BenchmarkActivity.class).setup().get();
+        shadowOf(activity.getApplication()).grantPermissions(Manifest.permission.CAMERA);
+        permissionManager = new PermissionManager(activity);
+    }
+
+    @Test
+    public void requestPermissionAlreadyGranted() {
+        MicroBenchmark.run("requestPermission.granted", 20_000, 100_000,
+                () -> permissionManager.requestPermission(Manifest.permission.CAMERA, countingCallback));
+
+        assertTrue(grantedCount > 0);
+    }
+
+    @Test
+    public void withPermissionAlreadyGranted() {
+        MicroBenchmark.Result result = MicroBenchmark.run("withPermission.granted", 20_000, 100_000,
+                () -> permissionManager.withPermission(Manifest.permission.CAMERA, countingAction));
+
+        assertTrue(grantedCount > 0);
+        MicroBenchmark.assertAllocationFree(result);
+    }
+
+    @Test
+    public void handlePermissionResultDispatch() {
+        String permission = Manifest.permission.RECORD_AUDIO;
+        ShadowActivity shadowActivity = shadowOf(activity);
+        String[] permissions = {permission};
+        int[] grantResults = {PackageManager.PERMISSION_GRANTED};
+
+        MicroBenchmark.run("handlePermissionResult.dispatch", 2_000, 10_000, () -> {
+            // Forget the previous grant so every iteration goes through a full request
+            permissionManager.getStateCache().invalidate(permission);
+            permissionManager.requestPermission(permission, countingCallback);
+            int requestCode = shadowActivity.getLastRequestedPermission().requestCode;
+            permissionManager.handlePermissionResult(requestCode, permissions, grantResults);
+        });
+
+        assertTrue(grantedCount > 0);
+    }
+}
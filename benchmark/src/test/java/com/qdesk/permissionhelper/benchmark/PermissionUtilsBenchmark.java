@@ -0,0 +1,38 @@
+package com.qdesk.permissionhelper.benchmark;
+
+import android.Manifest;
+
+import com.qdesk.permissionhelper.utils.PermissionMetadata;
+import com.qdesk.permissionhelper.utils.PermissionUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PermissionUtilsBenchmark {
+
+    private static final String[] PERMISSIONS = {
+            Manifest.permission.CAMERA,
+            Manifest.permission.ACCESS_FINE_LOCATION,
+            Manifest.permission.RECORD_AUDIO,
+            Manifest.permission.READ_CONTACTS,
+            "com.example.permission.UNKNOWN",
+    };
+
+    private PermissionMetadata sink;
+
+    @Test
+    public void getMetadata() {
+        int[] index = {0};
+        MicroBenchmark.run("permissionUtils.getMetadata", 50_000, 200_000, () -> {
+            sink = PermissionUtils.getMetadata(PERMISSIONS[index[0]++ % PERMISSIONS.length]);
+        });
+
+        assertNotNull(sink);
+    }
+}
@@ -0,0 +1,422 @@
+package com.qdesk.permissionhelper.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code <Class>PermissionsDispatcher} for every class with
+ * {@code @NeedsPermission} methods. The generated code calls straight into
+ * {@code PermissionManager} and the annotated methods, so nothing is looked up
+ * reflectively and R8 can shrink and inline it like hand-written code.
+ * <p>
+ * Annotations are matched by name, so this module doesn't depend on the
+ * Android library that declares them.
+ */
+public class PermissionsProcessor extends AbstractProcessor {
+
+    private static final String ANNOTATION_PACKAGE = "com.qdesk.permissionhelper.annotation.";
+    private static final String NEEDS_PERMISSION = ANNOTATION_PACKAGE + "NeedsPermission";
+    private static final String ON_PERMISSION_DENIED = ANNOTATION_PACKAGE + "OnPermissionDenied";
+    private static final String ON_PERMANENTLY_DENIED = ANNOTATION_PACKAGE + "OnPermanentlyDenied";
+
+    private static final String DISPATCHER_SUFFIX = "PermissionsDispatcher";
+    private static final String CHECK_SUFFIX = "WithPermissionCheck";
+
+    private Filer filer;
+    private Messager messager;
+    private Elements elements;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+        elements = processingEnv.getElementUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new LinkedHashSet<>(Arrays.asList(NEEDS_PERMISSION, ON_PERMISSION_DENIED, ON_PERMANENTLY_DENIED));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, TargetClass> targets = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            String annotationName = annotation.getQualifiedName().toString();
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                ExecutableElement method = asValidMethod(element, annotationName);
+                if (method == null) continue;
+
+                TypeElement type = (TypeElement) method.getEnclosingElement();
+                TargetClass target = targets.computeIfAbsent(type, TargetClass::new);
+                String key = permissionKey(permissionsOf(method, annotationName));
+                switch (annotationName) {
+                    case NEEDS_PERMISSION:
+                        target.needsPermission.add(method);
+                        break;
+                    case ON_PERMISSION_DENIED:
+                        putHandler(target.deniedHandlers, key, method, annotationName);
+                        break;
+                    default:
+                        putHandler(target.permanentlyDeniedHandlers, key, method, annotationName);
+                        break;
+                }
+            }
+        }
+
+        for (TargetClass target : targets.values()) {
+            if (target.needsPermission.isEmpty()) {
+                error(target.type, "Permission handlers need a @NeedsPermission method in the same class");
+                continue;
+            }
+            if (checkHandlersMatch(target)) {
+                writeDispatcher(target);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Every handler must pair with a @NeedsPermission method, or a typo in a permission would silently drop it
+     * @return false if an error was reported
+     */
+    private boolean checkHandlersMatch(TargetClass target) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (ExecutableElement method : target.needsPermission) {
+            keys.add(permissionKey(permissionsOf(method, NEEDS_PERMISSION)));
+        }
+
+        boolean matched = true;
+        matched &= checkHandlersMatch(target.deniedHandlers, keys, ON_PERMISSION_DENIED);
+        matched &= checkHandlersMatch(target.permanentlyDeniedHandlers, keys, ON_PERMANENTLY_DENIED);
+        return matched;
+    }
+
+    private boolean checkHandlersMatch(Map<String, ExecutableElement> handlers, Set<String> keys,
+                                       String annotationName) {
+        boolean matched = true;
+        for (Map.Entry<String, ExecutableElement> handler : handlers.entrySet()) {
+            if (keys.contains(handler.getKey())) continue;
+
+            error(handler.getValue(), "@%s(%s) matches no @NeedsPermission method with the same permissions",
+                    simpleName(annotationName), handler.getKey());
+            matched = false;
+        }
+        return matched;
+    }
+
+    private ExecutableElement asValidMethod(Element element, String annotationName) {
+        if (element.getKind() != ElementKind.METHOD) {
+            error(element, "@%s can only be used on methods", simpleName(annotationName));
+            return null;
+        }
+        ExecutableElement method = (ExecutableElement) element;
+        if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+            error(method, "@%s methods must not be private or static", simpleName(annotationName));
+            return null;
+        }
+        if (method.getReturnType().getKind() != TypeKind.VOID) {
+            error(method, "@%s methods must return void", simpleName(annotationName));
+            return null;
+        }
+        if (!NEEDS_PERMISSION.equals(annotationName) && !method.getParameters().isEmpty()) {
+            error(method, "@%s methods must not take arguments", simpleName(annotationName));
+            return null;
+        }
+        if (!method.getTypeParameters().isEmpty()) {
+            error(method, "@%s methods must not be generic", simpleName(annotationName));
+            return null;
+        }
+        for (Element enclosing = method.getEnclosingElement(); enclosing.getKind() != ElementKind.PACKAGE;
+             enclosing = enclosing.getEnclosingElement()) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                error(method, "@%s methods must not be in a private class", simpleName(annotationName));
+                return null;
+            }
+        }
+        if (permissionsOf(method, annotationName).isEmpty()) {
+            error(method, "@%s needs at least one permission", simpleName(annotationName));
+            return null;
+        }
+        return method;
+    }
+
+    private void putHandler(Map<String, ExecutableElement> handlers, String key, ExecutableElement method,
+                            String annotationName) {
+        if (handlers.put(key, method) != null) {
+            error(method, "Only one @%s method per set of permissions", simpleName(annotationName));
+        }
+    }
+
+    private void writeDispatcher(TargetClass target) {
+        PackageElement packageElement = elements.getPackageOf(target.type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String targetName = target.type.getQualifiedName().toString();
+        String dispatcherName = binarySimpleName(target.type) + DISPATCHER_SUFFIX;
+
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by PermissionsProcessor. Do not edit.\n");
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import com.qdesk.permissionhelper.core.MultiPermissionCallback;\n")
+                .append("import com.qdesk.permissionhelper.core.PermissionCallback;\n")
+                .append("import com.qdesk.permissionhelper.core.PermissionManager;\n")
+                .append("import java.util.List;\n\n")
+                .append("public final class ").append(dispatcherName).append(" {\n\n")
+                .append("    private ").append(dispatcherName).append("() {\n")
+                .append("    }\n");
+
+        List<Element> originating = new ArrayList<>();
+        originating.add(target.type);
+        for (ExecutableElement method : target.needsPermission) {
+            List<String> permissions = permissionsOf(method, NEEDS_PERMISSION);
+            String key = permissionKey(permissions);
+            ExecutableElement denied = target.deniedHandlers.get(key);
+            ExecutableElement permanentlyDenied = target.permanentlyDeniedHandlers.get(key);
+
+            source.append('\n');
+            if (permissions.size() == 1) {
+                writeSingleCheck(source, targetName, method, permissions.get(0), denied, permanentlyDenied);
+            } else {
+                writeMultiCheck(source, targetName, method, permissions, denied, permanentlyDenied);
+            }
+        }
+        source.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? dispatcherName : packageName + "." + dispatcherName;
+        try {
+            JavaFileObject file = filer.createSourceFile(qualifiedName, originating.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            error(target.type, "Could not write %s: %s", qualifiedName, e.getMessage());
+        }
+    }
+
+    /**
+     * Single permission: when already granted, the method runs before any callback is allocated
+     */
+    private void writeSingleCheck(StringBuilder source, String targetName, ExecutableElement method,
+                                  String permission, ExecutableElement denied, ExecutableElement permanentlyDenied) {
+        writeCheckSignature(source, targetName, method);
+        source.append("        if (manager.getStateCache().isGranted(").append(literal(permission)).append(")) {\n")
+                .append("            ");
+        writeCall(source, method);
+        source.append(";\n")
+                .append("            return;\n")
+                .append("        }\n")
+                .append("        manager.requestPermission(").append(literal(permission))
+                .append(", new PermissionCallback() {\n")
+                .append("            @Override\n")
+                .append("            public void onPermissionGranted(String permission) {\n")
+                .append("                ");
+        writeCall(source, method);
+        source.append(";\n")
+                .append("            }\n\n")
+                .append("            @Override\n")
+                .append("            public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {\n");
+        writeDeniedDispatch(source, "isPermanentlyDenied", denied, permanentlyDenied);
+        source.append("            }\n\n")
+                .append("            @Override\n")
+                .append("            public void onPermissionCancelled(String permission) {\n");
+        writeDeniedDispatch(source, null, denied, null);
+        source.append("            }\n\n")
+                // Can never be granted: not a case for the "enable it in Settings" handler
+                .append("            @Override\n")
+                .append("            public void onPermissionNotDeclared(String permission) {\n");
+        writeDeniedDispatch(source, null, denied, null);
+        source.append("            }\n")
+                .append("        });\n")
+                .append("    }\n");
+    }
+
+    /**
+     * Several permissions: one batched system prompt, the method runs if all of them are granted
+     */
+    private void writeMultiCheck(StringBuilder source, String targetName, ExecutableElement method,
+                                 List<String> permissions, ExecutableElement denied,
+                                 ExecutableElement permanentlyDenied) {
+        writeCheckSignature(source, targetName, method);
+        source.append("        manager.requestPermissions(new String[]{");
+        for (int i = 0; i < permissions.size(); i++) {
+            if (i > 0) source.append(", ");
+            source.append(literal(permissions.get(i)));
+        }
+        source.append("}, new MultiPermissionCallback() {\n")
+                .append("            private boolean permanentlyDenied;\n\n")
+                .append("            @Override\n")
+                .append("            public void onPermissionGranted(String permission) {\n")
+                .append("            }\n\n")
+                .append("            @Override\n")
+                .append("            public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {\n")
+                .append("                permanentlyDenied |= isPermanentlyDenied;\n")
+                .append("            }\n\n")
+                .append("            @Override\n")
+                .append("            public void onPermissionCancelled(String permission) {\n")
+                .append("            }\n\n")
+                // Reported as denied in the aggregated result, but never as permanently denied
+                .append("            @Override\n")
+                .append("            public void onPermissionNotDeclared(String permission) {\n")
+                .append("            }\n\n")
+                .append("            @Override\n")
+                .append("            public void onPermissionsResult(List<String> granted, List<String> denied) {\n")
+                .append("                if (denied.isEmpty()) {\n")
+                .append("                    ");
+        writeCall(source, method);
+        source.append(";\n")
+                .append("                    return;\n")
+                .append("                }\n");
+        writeDeniedDispatch(source, "permanentlyDenied", denied, permanentlyDenied);
+        source.append("            }\n")
+                .append("        });\n")
+                .append("    }\n");
+    }
+
+    private void writeCheckSignature(StringBuilder source, String targetName, ExecutableElement method) {
+        source.append("    public static void ").append(method.getSimpleName()).append(CHECK_SUFFIX)
+                .append("(final ").append(targetName).append(" target, PermissionManager manager");
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            source.append(", final ").append(parameters.get(i).asType()).append(" arg").append(i);
+        }
+        source.append(") {\n");
+    }
+
+    private void writeCall(StringBuilder source, ExecutableElement method) {
+        source.append("target.").append(method.getSimpleName()).append('(');
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            if (i > 0) source.append(", ");
+            source.append("arg").append(i);
+        }
+        source.append(')');
+    }
+
+    /**
+     * Route a denial to the permanently-denied handler when it applies, else to the denied handler
+     */
+    private void writeDeniedDispatch(StringBuilder source, String permanentFlag,
+                                     ExecutableElement denied, ExecutableElement permanentlyDenied) {
+        String indent = "                ";
+        if (permanentFlag != null && permanentlyDenied != null) {
+            source.append(indent).append("if (").append(permanentFlag).append(") {\n")
+                    .append(indent).append("    target.").append(permanentlyDenied.getSimpleName()).append("();\n");
+            if (denied != null) {
+                source.append(indent).append("} else {\n")
+                        .append(indent).append("    target.").append(denied.getSimpleName()).append("();\n");
+            }
+            source.append(indent).append("}\n");
+        } else if (denied != null) {
+            source.append(indent).append("target.").append(denied.getSimpleName()).append("();\n");
+        }
+    }
+
+    private List<String> permissionsOf(ExecutableElement method, String annotationName) {
+        List<String> permissions = new ArrayList<>();
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(annotationName)) continue;
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : mirror.getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value")) continue;
+
+                Object value = entry.getValue().getValue();
+                if (value instanceof List) {
+                    for (Object item : (List<?>) value) {
+                        permissions.add(String.valueOf(((AnnotationValue) item).getValue()));
+                    }
+                } else {
+                    permissions.add(String.valueOf(value));
+                }
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Order-independent key to pair handlers with their @NeedsPermission method
+     */
+    private static String permissionKey(List<String> permissions) {
+        String[] sorted = permissions.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return String.join(",", sorted);
+    }
+
+    /**
+     * Simple name that stays unique for nested classes, e.g. Outer_Inner
+     */
+    private static String binarySimpleName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement;
+             enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') literal.append('\\');
+            literal.append(c);
+        }
+        return literal.append('"').toString();
+    }
+
+    private static String simpleName(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+
+    private void error(Element element, String format, Object... args) {
+        messager.printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+    }
+
+    /**
+     * Annotated methods of one class
+     */
+    private static final class TargetClass {
+        final TypeElement type;
+        final List<ExecutableElement> needsPermission = new ArrayList<>();
+        final Map<String, ExecutableElement> deniedHandlers = new LinkedHashMap<>();
+        final Map<String, ExecutableElement> permanentlyDeniedHandlers = new LinkedHashMap<>();
+
+        TargetClass(TypeElement type) {
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.qdesk.permissionhelper.processor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the processor through javac against stubs of the annotations and of the core API,
+ * so the generated dispatcher is compiled as well
+ */
+public class PermissionsProcessorTest {
+
+    private static final String[] STUBS = {
+            "package com.qdesk.permissionhelper.annotation;\n"
+                    + "public @interface NeedsPermission { String[] value(); }\n",
+            "package com.qdesk.permissionhelper.annotation;\n"
+                    + "public @interface OnPermissionDenied { String[] value(); }\n",
+            "package com.qdesk.permissionhelper.annotation;\n"
+                    + "public @interface OnPermanentlyDenied { String[] value(); }\n",
+            "package com.qdesk.permissionhelper.core;\n"
+                    + "public interface PermissionCallback {\n"
+                    + "    void onPermissionGranted(String permission);\n"
+                    + "    void onPermissionDenied(String permission, boolean isPermanentlyDenied);\n"
+                    + "    void onPermissionCancelled(String permission);\n"
+                    + "    default void onPermissionNotDeclared(String permission) {\n"
+                    + "        onPermissionDenied(permission, true);\n"
+                    + "    }\n"
+                    + "}\n",
+            "package com.qdesk.permissionhelper.core;\n"
+                    + "public interface MultiPermissionCallback extends PermissionCallback {\n"
+                    + "    void onPermissionsResult(java.util.List<String> granted, java.util.List<String> denied);\n"
+                    + "}\n",
+            "package com.qdesk.permissionhelper.core;\n"
+                    + "public class PermissionStateCache {\n"
+                    + "    public boolean isGranted(String permission) {\n"
+                    + "        return false;\n"
+                    + "    }\n"
+                    + "}\n",
+            "package com.qdesk.permissionhelper.core;\n"
+                    + "public class PermissionManager {\n"
+                    + "    public PermissionStateCache getStateCache() {\n"
+                    + "        return new PermissionStateCache();\n"
+                    + "    }\n"
+                    + "    public void requestPermission(String permission, PermissionCallback callback) {\n"
+                    + "    }\n"
+                    + "    public void requestPermissions(String[] permissions, MultiPermissionCallback callback) {\n"
+                    + "    }\n"
+                    + "}\n",
+    };
+
+    private static final Pattern TYPE_NAME = Pattern.compile("(?:class|interface) (\\w+)");
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("permissions-processor");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void singlePermission_routesNotDeclaredToDeniedHandler() throws IOException {
+        Result result = compile("package com.example;\n"
+                + "import com.qdesk.permissionhelper.annotation.*;\n"
+                + "public class Camera {\n"
+                + "    @NeedsPermission(\"android.permission.CAMERA\") void open(int id) {}\n"
+                + "    @OnPermissionDenied(\"android.permission.CAMERA\") void denied() {}\n"
+                + "    @OnPermanentlyDenied(\"android.permission.CAMERA\") void neverAsk() {}\n"
+                + "}\n");
+
+        assertTrue(result.errors.toString(), result.errors.isEmpty());
+        String generated = result.generated("com/example/CameraPermissionsDispatcher.java");
+        assertTrue(generated.contains("public static void openWithPermissionCheck("
+                + "final com.example.Camera target, PermissionManager manager, final int arg0)"));
+        // Already granted: the method runs before any callback is allocated
+        assertTrue(generated.contains("if (manager.getStateCache().isGranted(\"android.permission.CAMERA\")) {\n"
+                + "            target.open(arg0);\n"
+                + "            return;\n"
+                + "        }\n"
+                + "        manager.requestPermission(\"android.permission.CAMERA\", new PermissionCallback() {"));
+        assertEquals("target.open(arg0);", body(generated, "public void onPermissionGranted(String permission) {"));
+
+        String notDeclared = body(generated, "public void onPermissionNotDeclared(String permission) {");
+        assertEquals("target.denied();", notDeclared);
+    }
+
+    @Test
+    public void multiplePermissions_matchInAnyOrder() throws IOException {
+        Result result = compile("package com.example;\n"
+                + "import com.qdesk.permissionhelper.annotation.*;\n"
+                + "public class Recorder {\n"
+                + "    @NeedsPermission({\"android.permission.CAMERA\", \"android.permission.RECORD_AUDIO\"})\n"
+                + "    void record() {}\n"
+                + "    @OnPermanentlyDenied({\"android.permission.RECORD_AUDIO\", \"android.permission.CAMERA\"})\n"
+                + "    void neverAsk() {}\n"
+                + "}\n");
+
+        assertTrue(result.errors.toString(), result.errors.isEmpty());
+        String generated = result.generated("com/example/RecorderPermissionsDispatcher.java");
+        assertTrue(generated.contains("manager.requestPermissions(new String[]{"
+                + "\"android.permission.CAMERA\", \"android.permission.RECORD_AUDIO\"}"));
+        assertTrue(generated.contains("target.neverAsk();"));
+        // An undeclared permission must not count as permanently denied
+        assertEquals("", body(generated, "public void onPermissionNotDeclared(String permission) {"));
+    }
+
+    @Test
+    public void unmatchedHandler_isAnError() throws IOException {
+        Result result = compile("package com.example;\n"
+                + "import com.qdesk.permissionhelper.annotation.*;\n"
+                + "public class Camera {\n"
+                + "    @NeedsPermission(\"android.permission.CAMERA\") void open() {}\n"
+                + "    @OnPermissionDenied(\"android.permission.CAMRA\") void denied() {}\n"
+                + "}\n");
+
+        assertEquals(1, result.errors.size());
+        assertTrue(result.errors.get(0), result.errors.get(0).contains("@OnPermissionDenied(android.permission.CAMRA)"));
+        assertFalse(Files.exists(root.resolve("generated/com/example/CameraPermissionsDispatcher.java")));
+    }
+
+    @Test
+    public void handlerWithoutNeedsPermission_isAnError() throws IOException {
+        Result result = compile("package com.example;\n"
+                + "import com.qdesk.permissionhelper.annotation.*;\n"
+                + "public class Camera {\n"
+                + "    @OnPermanentlyDenied(\"android.permission.CAMERA\") void neverAsk() {}\n"
+                + "}\n");
+
+        assertEquals(1, result.errors.size());
+        assertTrue(result.errors.get(0), result.errors.get(0).contains("need a @NeedsPermission method"));
+    }
+
+    private Result compile(String target) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (String stub : STUBS) {
+            sources.add(write(stub));
+        }
+        sources.add(write(target));
+
+        Path classes = Files.createDirectories(root.resolve("classes"));
+        Path generated = Files.createDirectories(root.resolve("generated"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-d", classes.toString(), "-s", generated.toString()),
+                    null, fileManager.getJavaFileObjectsFromPaths(sources));
+            task.setProcessors(Collections.singletonList(new PermissionsProcessor()));
+            task.call();
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        return new Result(generated, errors);
+    }
+
+    private Path write(String source) throws IOException {
+        Matcher type = TYPE_NAME.matcher(source);
+        assertTrue(type.find());
+        String packageName = source.substring("package ".length(), source.indexOf(';'));
+        String name = type.group(1);
+        Path file = root.resolve("src").resolve(packageName.replace('.', '/')).resolve(name + ".java");
+        Files.createDirectories(file.getParent());
+        return Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Trimmed statements of the generated method that starts with the given line
+     */
+    private static String body(String source, String signature) {
+        int start = source.indexOf(signature);
+        assertTrue("Missing " + signature, start >= 0);
+        start += signature.length();
+        return source.substring(start, source.indexOf("\n            }", start)).trim();
+    }
+
+    private static final class Result {
+        final Path generated;
+        final List<String> errors;
+
+        Result(Path generated, List<String> errors) {
+            this.generated = generated;
+            this.errors = errors;
+        }
+
+        String generated(String path) throws IOException {
+            return new String(Files.readAllBytes(generated.resolve(path)), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.qdesk.permissionhelper.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method that may only run with the given permissions.
+ * The permissionhelper-processor generates a {@code <Class>PermissionsDispatcher}
+ * with a {@code <method>WithPermissionCheck(target, manager, args...)} method
+ * that requests the permissions through {@code PermissionManager} and calls
+ * this method once all of them are granted. No reflection is involved.
+ * <p>
+ * The method must not be private or static and must return void.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.CLASS)
+public @interface NeedsPermission {
+    /**
+     * Permissions the method needs, e.g. {@code Manifest.permission.CAMERA}
+     */
+    String[] value();
+}
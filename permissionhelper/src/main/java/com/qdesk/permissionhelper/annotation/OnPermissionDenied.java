@@ -0,0 +1,20 @@
+package com.qdesk.permissionhelper.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the method called when the permissions of a {@link NeedsPermission}
+ * method with the same value were denied or the request was cancelled.
+ * Also called for permanent denials unless an {@link OnPermanentlyDenied}
+ * method exists for the same permissions.
+ * <p>
+ * The method must not be private or static, must return void and take no arguments.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.CLASS)
+public @interface OnPermissionDenied {
+    String[] value();
+}
@@ -0,0 +1,91 @@
+package com.qdesk.permissionhelper.core;
+
+import android.app.Activity;
+import android.content.pm.PackageManager;
+import androidx.activity.ComponentActivity;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+
+import java.util.Map;
+
+/**
+ * Launches permission requests through the Activity Result API, so results are
+ * delivered straight to the manager without the host forwarding
+ * onRequestPermissionsResult.
+ * <p>
+ * Registration uses a stable key, which lets the activity result registry
+ * redeliver a pending result to the recreated activity after a configuration change.
+ * Fragments register through their own API, whose key is derived from the
+ * fragment and equally stable.
+ */
+final class ActivityResultPermissionLauncher implements PermissionRequestLauncher {
+
+    // Null for fragment registrations, which bring their own key
+    private final String key;
+    private final PermissionManager manager;
+    private ActivityResultLauncher<String[]> launcher;
+
+    ActivityResultPermissionLauncher(@NonNull String key, @NonNull PermissionManager manager) {
+        this.key = key;
+        this.manager = manager;
+    }
+
+    /**
+     * Launcher that can only be registered with a fragment
+     */
+    ActivityResultPermissionLauncher(@NonNull PermissionManager manager) {
+        this.key = null;
+        this.manager = manager;
+    }
+
+    /**
+     * Register with the result registry of the given activity, replacing any previous registration
+     */
+    void register(@NonNull ComponentActivity activity) {
+        unregister();
+        launcher = activity.getActivityResultRegistry().register(key,
+                new ActivityResultContracts.RequestMultiplePermissions(), this::onResult);
+    }
+
+    /**
+     * Register with a fragment, so results go straight to it. Must be called
+     * before the fragment is created, e.g. from onAttach or onCreate.
+     */
+    void register(@NonNull Fragment fragment) {
+        unregister();
+        launcher = fragment.registerForActivityResult(
+                new ActivityResultContracts.RequestMultiplePermissions(), this::onResult);
+    }
+
+    void unregister() {
+        if (launcher != null) {
+            launcher.unregister();
+            launcher = null;
+        }
+    }
+
+    @Override
+    public void launch(@NonNull Activity activity, @NonNull PermissionRequest request) {
+        if (launcher == null) {
+            LEGACY.launch(activity, request);
+            return;
+        }
+        launcher.launch(request.permissions);
+    }
+
+    private void onResult(Map<String, Boolean> result) {
+        String[] permissions = new String[result.size()];
+        int[] grantResults = new int[result.size()];
+        int i = 0;
+        for (Map.Entry<String, Boolean> entry : result.entrySet()) {
+            permissions[i] = entry.getKey();
+            grantResults[i] = Boolean.TRUE.equals(entry.getValue())
+                    ? PackageManager.PERMISSION_GRANTED
+                    : PackageManager.PERMISSION_DENIED;
+            i++;
+        }
+        manager.handleActiveRequestResult(permissions, grantResults);
+    }
+}
@@ -0,0 +1,70 @@
+package com.qdesk.permissionhelper.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link RationalePolicy} that drops the steps this user's history shows don't work:
+ * <ul>
+ * <li>The rationale dialog is skipped once enough of them were shown and too few ended in a grant.</li>
+ * <li>The automatic retry only happens while rationales still convert.</li>
+ * <li>After repeated refusals the Settings prompt is no longer offered once the system
+ * reports the permission as permanently denied.</li>
+ * </ul>
+ * Until enough samples exist it behaves like {@link RationalePolicy#DEFAULT}.
+ */
+public class AdaptiveRationalePolicy implements RationalePolicy {
+
+    private static final int DEFAULT_MIN_SAMPLES = 4;
+    private static final float DEFAULT_MIN_GRANT_RATE = 0.25f;
+    private static final int DEFAULT_MAX_DENY_STREAK = 3;
+    private static final int MAX_RETRY_COUNT = 1;
+
+    private final int minSamples;
+    private final float minGrantRate;
+    private final int maxDenyStreak;
+
+    public AdaptiveRationalePolicy() {
+        this(DEFAULT_MIN_SAMPLES, DEFAULT_MIN_GRANT_RATE, DEFAULT_MAX_DENY_STREAK);
+    }
+
+    /**
+     * @param minSamples Rationales to observe before judging their grant rate
+     * @param minGrantRate Grant rate below which rationales and retries are skipped
+     * @param maxDenyStreak Denials in a row after which Settings is no longer offered
+     */
+    public AdaptiveRationalePolicy(int minSamples, float minGrantRate, int maxDenyStreak) {
+        this.minSamples = minSamples;
+        this.minGrantRate = minGrantRate;
+        this.maxDenyStreak = maxDenyStreak;
+    }
+
+    @NonNull
+    @Override
+    public Decision onRequest(@NonNull String permission, @NonNull PermissionStats stats,
+                              boolean shouldShowRationale) {
+        // The system decides whether it still prompts, see RationalePolicy#onRequest
+        return shouldShowRationale && isRationaleEffective(stats) ? Decision.RATIONALE : Decision.REQUEST;
+    }
+
+    @NonNull
+    @Override
+    public Decision onDenied(@NonNull String permission, @NonNull PermissionStats stats,
+                             boolean shouldShowRationale, int retryCount) {
+        boolean deniedBefore = retryCount > 0 || stats.getDenyStreak() > 1;
+        if (!shouldShowRationale && deniedBefore) {
+            return stats.getDenyStreak() >= maxDenyStreak ? Decision.DENY : Decision.SETTINGS;
+        }
+        if (retryCount < MAX_RETRY_COUNT && isRationaleEffective(stats)) {
+            return Decision.RATIONALE;
+        }
+        return Decision.DENY;
+    }
+
+    /**
+     * Check if rationales are worth showing to this user, assuming they are until proven otherwise
+     */
+    protected boolean isRationaleEffective(@NonNull PermissionStats stats) {
+        if (stats.getRationaleShownCount() < minSamples) return true;
+        return stats.getRationaleGrantRate() >= minGrantRate;
+    }
+}
@@ -0,0 +1,80 @@
+package com.qdesk.permissionhelper.core;
+
+import android.Manifest;
+import android.os.Build;
+import androidx.annotation.NonNull;
+
+/**
+ * What the app wants to do, independent of the permissions that guard it on a
+ * particular Android version. Request the permissions of the running device with
+ * {@code permissionManager.requestPermissions(capability.getPermissions(), callback)};
+ * a capability that needs no permission there resolves to an empty array.
+ */
+public enum Capability {
+    /** Read images shared by other apps */
+    READ_IMAGES,
+    /** Read videos shared by other apps */
+    READ_VIDEO,
+    /** Read audio files shared by other apps */
+    READ_AUDIO,
+    /** Write to shared storage outside the app's own media */
+    WRITE_SHARED_STORAGE,
+    /** Show notifications */
+    POST_NOTIFICATIONS,
+    /** Discover nearby Bluetooth devices */
+    BLUETOOTH_SCAN,
+    /** Talk to paired Bluetooth devices */
+    BLUETOOTH_CONNECT,
+    /** Make the device discoverable over Bluetooth */
+    BLUETOOTH_ADVERTISE;
+
+    /**
+     * Permissions this capability needs on the running device
+     */
+    @NonNull
+    public String[] getPermissions() {
+        return getPermissions(Build.VERSION.SDK_INT);
+    }
+
+    /**
+     * Permissions this capability needs on an API level
+     */
+    @NonNull
+    public String[] getPermissions(int sdkInt) {
+        boolean tiramisu = sdkInt >= Build.VERSION_CODES.TIRAMISU;
+        switch (this) {
+            case READ_IMAGES:
+                return permissions(tiramisu ? Manifest.permission.READ_MEDIA_IMAGES
+                        : Manifest.permission.READ_EXTERNAL_STORAGE);
+            case READ_VIDEO:
+                return permissions(tiramisu ? Manifest.permission.READ_MEDIA_VIDEO
+                        : Manifest.permission.READ_EXTERNAL_STORAGE);
+            case READ_AUDIO:
+                return permissions(tiramisu ? Manifest.permission.READ_MEDIA_AUDIO
+                        : Manifest.permission.READ_EXTERNAL_STORAGE);
+            case WRITE_SHARED_STORAGE:
+                return sdkInt >= Build.VERSION_CODES.R
+                        ? permissions() : permissions(Manifest.permission.WRITE_EXTERNAL_STORAGE);
+            case POST_NOTIFICATIONS:
+                return tiramisu ? permissions(Manifest.permission.POST_NOTIFICATIONS) : permissions();
+            case BLUETOOTH_SCAN:
+                if (sdkInt >= Build.VERSION_CODES.S) return permissions(Manifest.permission.BLUETOOTH_SCAN);
+                // Scan results needed location access before Android 12
+                return permissions(sdkInt >= Build.VERSION_CODES.Q
+                        ? Manifest.permission.ACCESS_FINE_LOCATION
+                        : Manifest.permission.ACCESS_COARSE_LOCATION);
+            case BLUETOOTH_CONNECT:
+                return sdkInt >= Build.VERSION_CODES.S
+                        ? permissions(Manifest.permission.BLUETOOTH_CONNECT) : permissions();
+            case BLUETOOTH_ADVERTISE:
+                return sdkInt >= Build.VERSION_CODES.S
+                        ? permissions(Manifest.permission.BLUETOOTH_ADVERTISE) : permissions();
+            default:
+                return permissions();
+        }
+    }
+
+    private static String[] permissions(String... permissions) {
+        return permissions;
+    }
+}
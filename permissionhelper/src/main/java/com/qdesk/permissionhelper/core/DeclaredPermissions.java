@@ -0,0 +1,60 @@
+package com.qdesk.permissionhelper.core;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Permissions declared in the merged manifest of the app.
+ * Built once, on first use, from a single PackageManager call; the manifest
+ * can't change while the process is alive.
+ */
+final class DeclaredPermissions {
+
+    private static volatile DeclaredPermissions instance;
+
+    // Null when the package info couldn't be read: then everything counts as declared
+    private final Set<String> declared;
+
+    private DeclaredPermissions(Set<String> declared) {
+        this.declared = declared;
+    }
+
+    static DeclaredPermissions getInstance(@NonNull Context context) {
+        DeclaredPermissions permissions = instance;
+        if (permissions == null) {
+            synchronized (DeclaredPermissions.class) {
+                permissions = instance;
+                if (permissions == null) {
+                    permissions = new DeclaredPermissions(load(context.getApplicationContext()));
+                    instance = permissions;
+                }
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Check if the app declares a permission with uses-permission
+     */
+    boolean isDeclared(@NonNull String permission) {
+        return declared == null || declared.contains(permission);
+    }
+
+    private static Set<String> load(Context appContext) {
+        try {
+            PackageInfo packageInfo = appContext.getPackageManager()
+                    .getPackageInfo(appContext.getPackageName(), PackageManager.GET_PERMISSIONS);
+            if (packageInfo.requestedPermissions == null) return Collections.emptySet();
+            return new HashSet<>(Arrays.asList(packageInfo.requestedPermissions));
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.qdesk.permissionhelper.core;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers every result of a callback on an executor instead of the thread
+ * that produced it
+ */
+class ExecutorPermissionCallback implements PermissionCallback {
+
+    final PermissionCallback delegate;
+    final Executor executor;
+
+    ExecutorPermissionCallback(PermissionCallback delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * Wrap a callback, or return it as is when no executor is set
+     */
+    static PermissionCallback wrap(PermissionCallback callback, Executor executor) {
+        if (executor == null) return callback;
+        return new ExecutorPermissionCallback(callback, executor);
+    }
+
+    /**
+     * Wrap a batch callback, or return it as is when no executor is set
+     */
+    static MultiPermissionCallback wrap(MultiPermissionCallback callback, Executor executor) {
+        if (executor == null) return callback;
+        return new Multi(callback, executor);
+    }
+
+    @Override
+    public void onPermissionGranted(String permission) {
+        executor.execute(() -> delegate.onPermissionGranted(permission));
+    }
+
+    @Override
+    public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
+        executor.execute(() -> delegate.onPermissionDenied(permission, isPermanentlyDenied));
+    }
+
+    @Override
+    public void onPermissionCancelled(String permission) {
+        executor.execute(() -> delegate.onPermissionCancelled(permission));
+    }
+
+    @Override
+    public void onPermissionNotDeclared(String permission) {
+        executor.execute(() -> delegate.onPermissionNotDeclared(permission));
+    }
+
+    private static final class Multi extends ExecutorPermissionCallback implements MultiPermissionCallback {
+
+        Multi(MultiPermissionCallback delegate, Executor executor) {
+            super(delegate, executor);
+        }
+
+        @Override
+        public void onPermissionsResult(List<String> granted, List<String> denied) {
+            executor.execute(() -> ((MultiPermissionCallback) delegate).onPermissionsResult(granted, denied));
+        }
+    }
+}
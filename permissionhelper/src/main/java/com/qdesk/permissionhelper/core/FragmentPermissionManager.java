@@ -0,0 +1,70 @@
+package com.qdesk.permissionhelper.core;
+
+import android.app.Activity;
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * Permission manager scoped to one fragment.
+ * <p>
+ * Results are delivered through the fragment's own Activity Result registration,
+ * so they reach the requesting fragment directly instead of going through the
+ * host activity, and fragments never wait on each other's callbacks. Pending
+ * requests live in a ViewModel of the fragment: they survive a configuration
+ * change and are released with the fragment. System prompts still share one
+ * queue per host activity with every other fragment's and the activity's
+ * {@link LifecyclePermissionManager}, as the system shows only one at a time. Dialogs, callbacks and the
+ * activity reference are dropped when the fragment is destroyed.
+ * <p>
+ * Create it in {@code onAttach} or {@code onCreate}, as the fragment's result
+ * registration must happen before the fragment is created.
+ */
+public class FragmentPermissionManager extends PermissionManager {
+
+    private final Fragment fragment;
+    private final LifecycleEventObserver lifecycleObserver = this::onLifecycleEvent;
+    private final ActivityResultPermissionLauncher resultLauncher;
+
+    /**
+     * @throws IllegalStateException If the fragment already has a permission manager
+     */
+    public FragmentPermissionManager(@NonNull Fragment fragment) {
+        super(fragment.requireActivity(), claimRegistry(fragment));
+        this.fragment = fragment;
+        resultLauncher = new ActivityResultPermissionLauncher(this);
+        resultLauncher.register(fragment);
+        setRequestLauncher(resultLauncher);
+        fragment.getLifecycle().addObserver(lifecycleObserver);
+    }
+
+    private static PermissionRequestRegistry claimRegistry(Fragment fragment) {
+        PermissionRequestRegistry registry = RetainedRequestRegistry.of(fragment);
+        if (registry.hasLauncher()) {
+            // It would take over the other manager's result callback
+            throw new IllegalStateException("This fragment already has a permission manager; share that one");
+        }
+        return registry;
+    }
+
+    /**
+     * Get the fragment this manager belongs to
+     */
+    @NonNull
+    public Fragment getFragment() {
+        return fragment;
+    }
+
+    private void onLifecycleEvent(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event != Lifecycle.Event.ON_DESTROY) return;
+
+        source.getLifecycle().removeObserver(lifecycleObserver);
+        // The fragment comes back with the activity, pending requests wait for its new manager
+        Activity activity = getActivity();
+        boolean isChangingConfigurations = activity != null && activity.isChangingConfigurations();
+        resultLauncher.unregister();
+        detach(isChangingConfigurations);
+    }
+}
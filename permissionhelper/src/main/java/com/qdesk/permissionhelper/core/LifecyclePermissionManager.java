@@ -0,0 +1,88 @@
+package com.qdesk.permissionhelper.core;
+
+import android.app.Activity;
+import androidx.annotation.NonNull;
+import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * Lifecycle-bound permission manager that never outlives its activity.
+ * <p>
+ * The activity, visible dialogs and callbacks are released when the activity is
+ * destroyed. Across a configuration change, requests that already reached the
+ * system are kept in a retained registry: calling {@link #requestPermission}
+ * again from the new instance (or after {@link #attach(FragmentActivity)})
+ * joins the pending request instead of showing a second prompt.
+ * <p>
+ * Requests go through the Activity Result API, so the host does not need to
+ * override onRequestPermissionsResult or call {@link #handlePermissionResult}.
+ */
+public class LifecyclePermissionManager extends PermissionManager {
+
+    private static final String DEFAULT_RESULT_KEY = "com.qdesk.permissionhelper.PermissionManager";
+
+    private final LifecycleEventObserver lifecycleObserver = this::onLifecycleEvent;
+    private final ActivityResultPermissionLauncher resultLauncher;
+
+    /**
+     * Create the activity's manager; use {@link #LifecyclePermissionManager(FragmentActivity, String)}
+     * if the activity has more than one
+     */
+    public LifecyclePermissionManager(@NonNull FragmentActivity activity) {
+        this(activity, DEFAULT_RESULT_KEY);
+    }
+
+    /**
+     * @param resultKey Activity result registry key, e.g. the owner's tag; must be unique
+     *                  per manager within one activity and stable across recreation.
+     *                  Managers with different keys have separate pending requests
+     *                  but still show their system prompts one at a time.
+     * @throws IllegalStateException If another manager of the activity uses the same key
+     */
+    public LifecyclePermissionManager(@NonNull FragmentActivity activity, @NonNull String resultKey) {
+        super(activity, claimRegistry(activity, resultKey));
+        resultLauncher = new ActivityResultPermissionLauncher(resultKey, this);
+        resultLauncher.register(activity);
+        setRequestLauncher(resultLauncher);
+        activity.getLifecycle().addObserver(lifecycleObserver);
+    }
+
+    private static PermissionRequestRegistry claimRegistry(FragmentActivity activity, String resultKey) {
+        PermissionRequestRegistry registry = RetainedRequestRegistry.of(activity, resultKey);
+        if (registry.hasLauncher()) {
+            // It would take over the other manager's result callback
+            throw new IllegalStateException("Another permission manager of this activity already uses result key \""
+                    + resultKey + "\"; give each manager its own key");
+        }
+        return registry;
+    }
+
+    /**
+     * Re-attach a long-lived manager to a recreated activity
+     */
+    public void attach(@NonNull FragmentActivity activity) {
+        Activity current = getActivity();
+        if (current == activity) return;
+        if (current instanceof LifecycleOwner) {
+            ((LifecycleOwner) current).getLifecycle().removeObserver(lifecycleObserver);
+        }
+
+        super.attach(activity);
+        resultLauncher.register(activity);
+        activity.getLifecycle().addObserver(lifecycleObserver);
+    }
+
+    private void onLifecycleEvent(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event != Lifecycle.Event.ON_DESTROY) return;
+
+        source.getLifecycle().removeObserver(lifecycleObserver);
+        // A newer instance may already be attached
+        if (source != getActivity()) return;
+
+        boolean isChangingConfigurations = ((Activity) source).isChangingConfigurations();
+        resultLauncher.unregister();
+        detach(isChangingConfigurations);
+    }
+}
@@ -0,0 +1,17 @@
+package com.qdesk.permissionhelper.core;
+
+import java.util.List;
+
+/**
+ * Callback interface for batched permission requests.
+ * Per-permission results are still delivered through {@link PermissionCallback},
+ * followed by one aggregated result once the whole batch is settled.
+ */
+public interface MultiPermissionCallback extends PermissionCallback {
+    /**
+     * Called once after every permission in the batch has a result
+     * @param granted Permissions that are granted (including already granted ones)
+     * @param denied Permissions that were denied or cancelled
+     */
+    void onPermissionsResult(List<String> granted, List<String> denied);
+}
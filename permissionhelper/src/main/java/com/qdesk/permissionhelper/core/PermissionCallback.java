@@ -25,4 +25,13 @@ public interface PermissionCallback {
      * @param permission The permission that was cancelled
      */
     void onPermissionCancelled(String permission);
+
+    /**
+     * Called instead of asking the system when the permission isn't declared in
+     * the app's manifest, so it can never be granted. Defaults to a permanent denial.
+     * @param permission The undeclared permission
+     */
+    default void onPermissionNotDeclared(String permission) {
+        onPermissionDenied(permission, true);
+    }
 }
@@ -0,0 +1,77 @@
+package com.qdesk.permissionhelper.core;
+
+import android.Manifest;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Permissions that the system grants together and that share one rationale.
+ * Members are listed strongest first; requesting a member also requests the
+ * weaker members after it in one system call, never a stronger one. Asking
+ * for approximate location must not turn into a prompt for precise location.
+ */
+public final class PermissionGroup {
+
+    public static final PermissionGroup LOCATION = new PermissionGroup("location",
+            Manifest.permission.ACCESS_FINE_LOCATION,
+            Manifest.permission.ACCESS_COARSE_LOCATION);
+
+    public static final PermissionGroup STORAGE = new PermissionGroup("storage",
+            Manifest.permission.WRITE_EXTERNAL_STORAGE,
+            Manifest.permission.READ_EXTERNAL_STORAGE);
+
+    public static final PermissionGroup CONTACTS = new PermissionGroup("contacts",
+            Manifest.permission.WRITE_CONTACTS,
+            Manifest.permission.READ_CONTACTS);
+
+    private static final PermissionGroup[] GROUPS = {LOCATION, STORAGE, CONTACTS};
+
+    private final String name;
+    private final String[] permissions;
+
+    private PermissionGroup(String name, String... permissions) {
+        this.name = name;
+        this.permissions = permissions;
+    }
+
+    /**
+     * Find the group a permission belongs to
+     * @return The group, or null if the permission is requested on its own
+     */
+    @Nullable
+    public static PermissionGroup of(@NonNull String permission) {
+        for (PermissionGroup group : GROUPS) {
+            if (group.contains(permission)) return group;
+        }
+        return null;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    @NonNull
+    public String[] getPermissions() {
+        return permissions.clone();
+    }
+
+    public boolean contains(@NonNull String permission) {
+        return indexOf(permission) >= 0;
+    }
+
+    /**
+     * Check if requesting one member also requests another, i.e. the other is weaker
+     */
+    public boolean implies(@NonNull String permission, @NonNull String other) {
+        int index = indexOf(permission);
+        return index >= 0 && index < indexOf(other);
+    }
+
+    private int indexOf(String permission) {
+        for (int i = 0; i < permissions.length; i++) {
+            if (permissions[i].equals(permission)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,169 @@
+package com.qdesk.permissionhelper.core;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.res.ResourcesCompat;
+
+import com.qdesk.permissionhelper.R;
+import com.qdesk.permissionhelper.utils.PermissionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Library-wide entry points that don't need an Activity
+ */
+public final class PermissionHelper {
+
+    /**
+     * Notified on the main thread once warm-up has finished, or right away
+     * through the main thread if it already has
+     */
+    public interface OnPrewarmCompleteListener {
+        /**
+         * @param durationMillis Wall time spent warming up on the background thread
+         */
+        void onPrewarmComplete(long durationMillis);
+    }
+
+    private static final String[] PREWARM_CLASSES = {
+            "com.qdesk.permissionhelper.core.PermissionManager",
+            "com.qdesk.permissionhelper.core.PermissionRequestRegistry",
+            "com.qdesk.permissionhelper.core.PermissionRequest",
+            "com.qdesk.permissionhelper.core.DeclaredPermissions",
+            "com.qdesk.permissionhelper.core.PermissionResolver",
+            "com.qdesk.permissionhelper.ui.PermissionDialog",
+            "com.qdesk.permissionhelper.ui.PermissionSettingsPrompt",
+            "com.qdesk.permissionhelper.ui.DialogViewCache",
+            "com.qdesk.permissionhelper.ui.DialogTransition",
+            "com.qdesk.permissionhelper.utils.PermissionRegistry",
+    };
+
+    private static final int[] PREWARM_DRAWABLES = {
+            R.drawable.ic_camera,
+            R.drawable.ic_storage,
+            R.drawable.ic_location,
+            R.drawable.ic_microphone,
+            R.drawable.ic_contacts,
+            R.drawable.ic_settings,
+            R.drawable.ic_permission_default,
+            R.drawable.button_primary,
+            R.drawable.button_outline,
+    };
+
+    private static final int[] PREWARM_LAYOUTS = {
+            R.layout.dialog_permission,
+            R.layout.dialog_settings_prompt,
+    };
+
+    private static final int[] PREWARM_ANIMATIONS = {
+            R.anim.dialog_fade_in,
+            R.anim.slide_up,
+    };
+
+    private static final Object prewarmLock = new Object();
+    // Guarded by prewarmLock: listeners waiting for the warm-up, and its duration once done
+    private static final List<OnPrewarmCompleteListener> prewarmListeners = new ArrayList<>();
+    private static boolean prewarmStarted;
+    private static long prewarmDurationMillis = -1;
+
+    private PermissionHelper() {
+    }
+
+    /**
+     * Move the one-time cost of the permission flow off the first request.
+     * Safe to call from Application.onCreate; only the first call does any work.
+     */
+    public static void prewarm(@NonNull Context context) {
+        prewarm(context, null);
+    }
+
+    /**
+     * Move the one-time cost of the permission flow off the first request:
+     * class loading and static initialization, drawable and layout resource
+     * resolution, and loading of the state cache, request history and declared
+     * permission index.
+     * Runs on a background thread; only the first call does any work.
+     * @param listener Optional listener told how long the warm-up took. Listeners of
+     *                 later calls are told once the first call's warm-up has finished.
+     */
+    public static void prewarm(@NonNull Context context, @Nullable OnPrewarmCompleteListener listener) {
+        synchronized (prewarmLock) {
+            if (prewarmDurationMillis >= 0) {
+                if (listener != null) notifyPrewarmComplete(listener, prewarmDurationMillis);
+                return;
+            }
+            if (listener != null) prewarmListeners.add(listener);
+            if (prewarmStarted) return;
+            prewarmStarted = true;
+        }
+
+        Context appContext = context.getApplicationContext();
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            long start = SystemClock.elapsedRealtime();
+
+            try {
+                runPrewarm(appContext);
+            } finally {
+                // Best effort: waiting listeners are released even if a step failed
+                long duration = SystemClock.elapsedRealtime() - start;
+                synchronized (prewarmLock) {
+                    prewarmDurationMillis = duration;
+                    for (OnPrewarmCompleteListener waiting : prewarmListeners) {
+                        notifyPrewarmComplete(waiting, duration);
+                    }
+                    prewarmListeners.clear();
+                }
+            }
+        }, "PermissionHelperPrewarm");
+        thread.start();
+    }
+
+    private static void notifyPrewarmComplete(OnPrewarmCompleteListener listener, long durationMillis) {
+        new Handler(Looper.getMainLooper()).post(() -> listener.onPrewarmComplete(durationMillis));
+    }
+
+    private static void runPrewarm(Context appContext) {
+        ClassLoader classLoader = PermissionHelper.class.getClassLoader();
+        for (String className : PREWARM_CLASSES) {
+            try {
+                Class.forName(className, true, classLoader);
+            } catch (ClassNotFoundException ignored) {
+                // Stripped by the shrinker, nothing to warm
+            }
+        }
+
+        // Builds the default metadata registry
+        PermissionUtils.getMetadata(Manifest.permission.CAMERA);
+
+        PermissionStateCache.getInstance(appContext);
+        PermissionHistoryStore.getInstance(appContext);
+        DeclaredPermissions.getInstance(appContext);
+
+        Resources resources = appContext.getResources();
+        for (int drawableRes : PREWARM_DRAWABLES) {
+            try {
+                ResourcesCompat.getDrawable(resources, drawableRes, null);
+            } catch (Resources.NotFoundException ignored) {
+                // Best effort only
+            }
+        }
+        for (int layoutRes : PREWARM_LAYOUTS) {
+            XmlResourceParser parser = resources.getLayout(layoutRes);
+            parser.close();
+        }
+        for (int animationRes : PREWARM_ANIMATIONS) {
+            XmlResourceParser parser = resources.getAnimation(animationRes);
+            parser.close();
+        }
+    }
+}
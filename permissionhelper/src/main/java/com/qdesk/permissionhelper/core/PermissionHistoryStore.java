@@ -0,0 +1,268 @@
+package com.qdesk.permissionhelper.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.NonNull;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Persistent per-permission request/deny/rationale history.
+ * <p>
+ * Each permission is stored as a single packed long in SharedPreferences.
+ * The store is loaded on a background thread as soon as it is created and changes
+ * are written back in batches. Changes recorded before the load finishes are
+ * merged into the loaded history; until then lookups see only this session's
+ * counters, so the caller never waits for disk I/O.
+ */
+final class PermissionHistoryStore {
+
+    private static final String PREFS_NAME = "com.qdesk.permissionhelper.history";
+    private static final long FLUSH_DELAY_MS = 500;
+
+    // Saturating 16-bit counters packed into one long
+    private static final int FIELD_BITS = 16;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+    static final int REQUEST_COUNT_SHIFT = 0;
+    static final int DENY_COUNT_SHIFT = 16;
+    static final int DENY_STREAK_SHIFT = 32;
+    // The top 16 bits hold two 8-bit rationale counters that decay together
+    private static final int RATIONALE_FIELD_BITS = 8;
+    static final int RATIONALE_FIELD_MAX = (1 << RATIONALE_FIELD_BITS) - 1;
+    static final int RATIONALE_SHOWN_SHIFT = 48;
+    static final int RATIONALE_GRANTED_SHIFT = 56;
+
+    private static volatile PermissionHistoryStore instance;
+
+    private final Context appContext;
+    private final ConcurrentHashMap<String, Long> records = new ConcurrentHashMap<>();
+    // Permissions granted before the load finished: their loaded deny streak is stale
+    private final Set<String> grantedBeforeLoad = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirty = new HashSet<>();
+    private final ScheduledExecutorService ioExecutor;
+    private volatile boolean loaded;
+    private boolean flushScheduled;
+
+    private PermissionHistoryStore(Context appContext) {
+        this.appContext = appContext;
+        this.ioExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PermissionHistoryStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ioExecutor.execute(this::load);
+    }
+
+    static PermissionHistoryStore getInstance(@NonNull Context context) {
+        PermissionHistoryStore store = instance;
+        if (store == null) {
+            synchronized (PermissionHistoryStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new PermissionHistoryStore(context.getApplicationContext());
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    int getRequestCount(@NonNull String permission) {
+        return field(record(permission), REQUEST_COUNT_SHIFT);
+    }
+
+    int getDenyCount(@NonNull String permission) {
+        return field(record(permission), DENY_COUNT_SHIFT);
+    }
+
+    /**
+     * Number of denials since the permission was last granted
+     */
+    int getDenyStreak(@NonNull String permission) {
+        return field(record(permission), DENY_STREAK_SHIFT);
+    }
+
+    /**
+     * Snapshot of every counter of a permission, for policy decisions.
+     * Before the persisted history is loaded it holds only this session's counters.
+     */
+    @NonNull
+    PermissionStats getStats(@NonNull String permission) {
+        return stats(record(permission));
+    }
+
+    void recordRequested(@NonNull String permission) {
+        update(permission, record -> increment(record, REQUEST_COUNT_SHIFT));
+    }
+
+    void recordDenied(@NonNull String permission) {
+        update(permission, PermissionHistoryStore::withDenied);
+    }
+
+    /**
+     * The permission is granted, whether through this library or directly in Settings
+     */
+    void recordGranted(@NonNull String permission) {
+        if (!loaded) {
+            grantedBeforeLoad.add(permission);
+        } else if (field(record(permission), DENY_STREAK_SHIFT) == 0) {
+            return;
+        }
+        update(permission, PermissionHistoryStore::withStreakReset);
+    }
+
+    void recordRationaleShown(@NonNull String permission) {
+        update(permission, PermissionHistoryStore::withRationaleShown);
+    }
+
+    /**
+     * The permission was granted from a system prompt that followed a rationale
+     */
+    void recordGrantedAfterRationale(@NonNull String permission) {
+        update(permission, PermissionHistoryStore::withGrantedAfterRationale);
+    }
+
+    private long record(String permission) {
+        Long record = records.get(permission);
+        return record != null ? record : 0L;
+    }
+
+    private void update(String permission, LongUnaryOperator change) {
+        // Atomic per permission, so a concurrent load can't interleave with the change
+        records.compute(permission, (key, record) -> change.applyAsLong(record != null ? record : 0L));
+        synchronized (dirty) {
+            dirty.add(permission);
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        ioExecutor.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void load() {
+        try {
+            SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+                if (!(entry.getValue() instanceof Long)) continue;
+
+                String permission = entry.getKey();
+                long persisted = (Long) entry.getValue();
+                records.compute(permission, (key, early) -> early == null ? persisted
+                        : merge(persisted, early, grantedBeforeLoad.contains(key)));
+            }
+        } finally {
+            loaded = true;
+            grantedBeforeLoad.clear();
+        }
+    }
+
+    private void flush() {
+        String[] permissions;
+        synchronized (dirty) {
+            permissions = dirty.toArray(new String[0]);
+            dirty.clear();
+            flushScheduled = false;
+        }
+
+        SharedPreferences.Editor editor =
+                appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit();
+        for (String permission : permissions) {
+            editor.putLong(permission, record(permission));
+        }
+        editor.apply();
+    }
+
+    // Pure operations on packed records
+
+    static PermissionStats stats(long record) {
+        return new PermissionStats(field(record, REQUEST_COUNT_SHIFT),
+                field(record, DENY_COUNT_SHIFT),
+                field(record, DENY_STREAK_SHIFT),
+                rationaleField(record, RATIONALE_SHOWN_SHIFT),
+                rationaleField(record, RATIONALE_GRANTED_SHIFT));
+    }
+
+    static long withDenied(long record) {
+        return increment(increment(record, DENY_COUNT_SHIFT), DENY_STREAK_SHIFT);
+    }
+
+    static long withStreakReset(long record) {
+        return record & ~(FIELD_MASK << DENY_STREAK_SHIFT);
+    }
+
+    static long withRationaleShown(long record) {
+        int shown = rationaleField(record, RATIONALE_SHOWN_SHIFT);
+        int granted = rationaleField(record, RATIONALE_GRANTED_SHIFT);
+        if (shown == RATIONALE_FIELD_MAX) {
+            // Halve both counters instead of saturating, so the grant rate keeps tracking recent behavior
+            shown /= 2;
+            granted /= 2;
+        }
+        return withRationale(record, shown + 1, granted);
+    }
+
+    static long withGrantedAfterRationale(long record) {
+        int shown = rationaleField(record, RATIONALE_SHOWN_SHIFT);
+        int granted = rationaleField(record, RATIONALE_GRANTED_SHIFT);
+        if (granted >= shown) return record;
+        return withRationale(record, shown, granted + 1);
+    }
+
+    /**
+     * Combine a persisted record with one recorded from zero before it was loaded
+     * @param grantedSinceLoad The early record reset the deny streak, so the persisted one no longer counts
+     */
+    static long merge(long persisted, long early, boolean grantedSinceLoad) {
+        long merged = 0;
+        merged = withField(merged, REQUEST_COUNT_SHIFT,
+                field(persisted, REQUEST_COUNT_SHIFT) + field(early, REQUEST_COUNT_SHIFT));
+        merged = withField(merged, DENY_COUNT_SHIFT,
+                field(persisted, DENY_COUNT_SHIFT) + field(early, DENY_COUNT_SHIFT));
+        merged = withField(merged, DENY_STREAK_SHIFT, grantedSinceLoad
+                ? field(early, DENY_STREAK_SHIFT)
+                : field(persisted, DENY_STREAK_SHIFT) + field(early, DENY_STREAK_SHIFT));
+
+        int shown = rationaleField(persisted, RATIONALE_SHOWN_SHIFT) + rationaleField(early, RATIONALE_SHOWN_SHIFT);
+        int granted = rationaleField(persisted, RATIONALE_GRANTED_SHIFT)
+                + rationaleField(early, RATIONALE_GRANTED_SHIFT);
+        while (shown > RATIONALE_FIELD_MAX) {
+            shown /= 2;
+            granted /= 2;
+        }
+        return withRationale(merged, shown, Math.min(granted, shown));
+    }
+
+    static int field(long record, int shift) {
+        return (int) ((record >>> shift) & FIELD_MASK);
+    }
+
+    static int rationaleField(long record, int shift) {
+        return (int) ((record >>> shift) & RATIONALE_FIELD_MAX);
+    }
+
+    static long increment(long record, int shift) {
+        if (field(record, shift) == FIELD_MASK) return record;
+        return record + (1L << shift);
+    }
+
+    private static long withField(long record, int shift, int value) {
+        long saturated = Math.min(value, FIELD_MASK);
+        return (record & ~(FIELD_MASK << shift)) | (saturated << shift);
+    }
+
+    private static long withRationale(long record, int shown, int granted) {
+        return (record & ~(-1L << RATIONALE_SHOWN_SHIFT))
+                | ((long) shown << RATIONALE_SHOWN_SHIFT)
+                | ((long) granted << RATIONALE_GRANTED_SHIFT);
+    }
+}
@@ -6,68 +6,582 @@ package com.qdesk.permissionhelper.core;
 
 import android.Manifest;
 import android.app.Activity;
+import android.app.Dialog;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
 import android.provider.Settings;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
 
+import com.qdesk.permissionhelper.ui.DialogAnimationMode;
+import com.qdesk.permissionhelper.ui.DialogFrameStats;
+import com.qdesk.permissionhelper.ui.DialogViewCache;
 import com.qdesk.permissionhelper.ui.PermissionDialog;
 import com.qdesk.permissionhelper.ui.PermissionSettingsPrompt;
+import com.qdesk.permissionhelper.utils.PermissionMetadata;
 import com.qdesk.permissionhelper.utils.PermissionUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Main manager class for handling permission requests with smart UX flow
+ * Main manager class for handling permission requests with smart UX flow.
+ * <p>
+ * Requests may be made from any thread. The flow itself, its dialogs and its
+ * state live on the main thread: work arriving from other threads is handed to
+ * the main looper in one batch, except for already granted permissions, which
+ * are answered on the calling thread and recorded in that batch. Callbacks run on the main thread unless
+ * an executor is set with {@link #setCallbackExecutor(Executor)}.
  */
 public class PermissionManager {
-    private static final int PERMISSION_REQUEST_CODE = 1001;
+    private static final String BATCH_KEY_PREFIX = "batch:";
+    private static final String GROUP_KEY_PREFIX = "group:";
+
+    private static final String TRACE_REQUEST_PERMISSION = "PermissionManager#requestPermission";
+    private static final String TRACE_SHOW_RATIONALE = "PermissionManager#showRationaleDialog";
+    private static final String TRACE_REQUEST_DIRECTLY = "PermissionManager#requestPermissionDirectly";
+    private static final String TRACE_HANDLE_RESULT = "PermissionManager#handlePermissionResult";
+    private static final String TRACE_SHOW_SETTINGS_PROMPT = "PermissionManager#showSettingsPrompt";
 
     private Activity activity;
-    private PermissionCallback callback;
-    private String currentPermission;
-    private Map<String, Integer> permissionRetryCount;
-    private static final int MAX_RETRY_COUNT = 1;
+    private final PermissionRequestRegistry requestRegistry;
+    private final PermissionStateCache stateCache;
+    private final PermissionHistoryStore historyStore;
+    private final Context appContext;
+    private final List<Dialog> visibleDialogs = new ArrayList<>();
+    private DialogViewCache dialogViewCache;
+    private DialogAnimationMode dialogAnimationMode = DialogAnimationMode.VIEW_ANIMATION;
+    private DialogFrameStats.OnFrameStatsListener dialogFrameStatsListener;
+    private SettingsReturnWatcher settingsReturnWatcher;
+    private final SpeculativeWarmUps warmUps = new SpeculativeWarmUps();
+    private boolean groupExpansionEnabled = true;
+    private RationalePolicy rationalePolicy = RationalePolicy.DEFAULT;
+    private PermissionMetrics metrics;
+    private boolean tracingEnabled;
+    private PermissionRequestLauncher requestLauncher = PermissionRequestLauncher.LEGACY;
+    private volatile Executor callbackExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ConcurrentLinkedQueue<Runnable> pendingMainWork = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mainWorkScheduled = new AtomicBoolean();
+    private final Runnable drainMainWork = this::drainMainWork;
+    private final Map<String, Integer> permissionRetryCount;
+    private final PermissionRequestRegistry.Launcher queuedRequestLauncher = this::launchSystemRequest;
 
     public PermissionManager(@NonNull Activity activity) {
+        this(activity, new PermissionRequestRegistry());
+    }
+
+    PermissionManager(@NonNull Activity activity, @NonNull PermissionRequestRegistry requestRegistry) {
+        this.activity = activity;
+        this.requestRegistry = requestRegistry;
+        this.stateCache = PermissionStateCache.getInstance(activity);
+        this.historyStore = PermissionHistoryStore.getInstance(activity);
+        this.appContext = activity.getApplicationContext();
+        this.dialogViewCache = new DialogViewCache(activity);
+        this.permissionRetryCount = new ConcurrentHashMap<>();
+        requestRegistry.setLauncher(queuedRequestLauncher);
+        // Once subclasses have installed their launcher
+        mainHandler.post(this::resumeSystemQueue);
+        resumeSettingsReturn();
+    }
+
+    /**
+     * Bind this manager to a (new) activity instance
+     */
+    protected void attach(@NonNull Activity activity) {
+        if (this.activity != activity || dialogViewCache == null) {
+            if (dialogViewCache != null) dialogViewCache.clear();
+            dialogViewCache = new DialogViewCache(activity);
+        }
         this.activity = activity;
-        this.permissionRetryCount = new HashMap<>();
+        requestRegistry.setLauncher(queuedRequestLauncher);
+        resumeSystemQueue();
+        resumeSettingsReturn();
+    }
+
+    /**
+     * Release the activity and everything that may reference it
+     * @param retainPendingRequests Keep requests already sent to the system,
+     *                              e.g. across a configuration change
+     */
+    protected void detach(boolean retainPendingRequests) {
+        for (Dialog dialog : new ArrayList<>(visibleDialogs)) {
+            dialog.dismiss();
+        }
+        visibleDialogs.clear();
+        // The cache holds the activity; a new one is created on the next attach
+        if (dialogViewCache != null) {
+            dialogViewCache.clear();
+            dialogViewCache = null;
+        }
+        cancelSettingsReturn();
+        warmUps.cancelAll();
+        requestRegistry.setLauncher(null);
+
+        if (retainPendingRequests) {
+            requestRegistry.retainSystemRequests();
+        } else {
+            requestRegistry.clear();
+        }
+        activity = null;
+    }
+
+    /**
+     * Expand single-permission requests to the weaker members of their {@link PermissionGroup},
+     * so related permissions share one rationale and one system prompt. Enabled by default.
+     */
+    public void setGroupExpansionEnabled(boolean enabled) {
+        this.groupExpansionEnabled = enabled;
+    }
+
+    /**
+     * Replace the policy deciding when to explain, retry, open Settings or give up,
+     * e.g. with an {@link AdaptiveRationalePolicy}
+     */
+    public void setRationalePolicy(@NonNull RationalePolicy rationalePolicy) {
+        this.rationalePolicy = rationalePolicy;
+    }
+
+    /**
+     * Install a metrics listener for stage latencies and funnel events, or null to disable
+     */
+    public void setMetrics(@Nullable PermissionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Emit android.os.Trace sections around each stage, visible in Perfetto/systrace
+     */
+    public void setTracingEnabled(boolean enabled) {
+        this.tracingEnabled = enabled;
+    }
+
+    /**
+     * Deliver request callbacks on an executor, e.g. a background pipeline's own,
+     * or null for the main thread. Use a serial executor if callback order matters.
+     */
+    public void setCallbackExecutor(@Nullable Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    /**
+     * Register a speculative warm-up for the feature behind a permission.
+     * It is prepared in the background while the system prompt or the Settings
+     * screen is up, committed on grant and cancelled on deny, so the feature is
+     * ready the moment the user allows it. Must be called on the main thread.
+     */
+    public void registerWarmUp(@NonNull String permission, @NonNull PermissionWarmUp warmUp) {
+        warmUps.register(permission, warmUp);
+    }
+
+    /**
+     * Remove the warm-up of a permission, cancelling it if it is running
+     */
+    public void unregisterWarmUp(@NonNull String permission) {
+        warmUps.unregister(permission);
+    }
+
+    /**
+     * Executor for warm-up preparation, or null for the library's shared background pool
+     */
+    public void setWarmUpExecutor(@Nullable Executor executor) {
+        warmUps.setExecutor(executor);
+    }
+
+    /**
+     * Choose how the rationale dialog and settings prompt animate, e.g.
+     * {@link DialogAnimationMode#PROPERTY_ANIMATOR} to keep transitions off the UI thread
+     */
+    public void setDialogAnimationMode(@NonNull DialogAnimationMode mode) {
+        this.dialogAnimationMode = mode;
+    }
+
+    /**
+     * Report frame times and dropped frames of dialog show/dismiss transitions, or null to disable
+     */
+    public void setDialogFrameStatsListener(@Nullable DialogFrameStats.OnFrameStatsListener listener) {
+        this.dialogFrameStatsListener = listener;
+    }
+
+    /**
+     * Pre-inflate the rationale and settings dialogs when the main thread is idle,
+     * so their first show doesn't pay for layout inflation and animation loading.
+     * Must be called on the main thread.
+     */
+    public void warmUpDialogs() {
+        if (dialogViewCache != null) dialogViewCache.warmUp();
     }
 
     /**
-     * Request a single permission with smart UX flow
+     * Replace the mechanism used to send requests to the system
+     */
+    void setRequestLauncher(@NonNull PermissionRequestLauncher requestLauncher) {
+        this.requestLauncher = requestLauncher;
+    }
+
+    /**
+     * Get the activity this manager is bound to, or null once detached
+     */
+    @Nullable
+    protected Activity getActivity() {
+        return activity;
+    }
+
+    /**
+     * Check if this manager is currently bound to an activity
+     */
+    public boolean isAttached() {
+        return activity != null;
+    }
+
+    /**
+     * Request a single permission with smart UX flow.
+     * A request for a permission that is already in flight joins the pending
+     * request instead of showing another prompt. The weaker members of a
+     * {@link PermissionGroup} are requested along, and every member's result is recorded.
      * @param permission The permission to request
      * @param callback Callback to handle results
      */
     public void requestPermission(@NonNull String permission, @NonNull PermissionCallback callback) {
-        this.callback = callback;
-        this.currentPermission = permission;
+        requestPermissionOnAnyThread(permission, ExecutorPermissionCallback.wrap(callback, callbackExecutor));
+    }
 
-        if (isPermissionGranted(permission)) {
+    private void requestPermissionOnAnyThread(String permission, PermissionCallback callback) {
+        if (isMainThread()) {
+            requestPermissionOnMainThread(permission, callback);
+        } else if (PermissionResolver.isUnchanged(permission) && isPermissionDeclared(permission)
+                && isPermissionGranted(permission)) {
+            // Nothing to show, no need to bounce through the main thread; the bookkeeping follows there
+            callback.onPermissionGranted(permission);
+            postToMainThread(() -> {
+                onEvent(permission, PermissionMetrics.Event.REQUESTED);
+                recordAlreadyGranted(permission);
+            });
+        } else {
+            postToMainThread(() -> requestPermissionOnMainThread(permission, callback));
+        }
+    }
+
+    private void requestPermissionOnMainThread(String permission, PermissionCallback callback) {
+        beginTrace(TRACE_REQUEST_PERMISSION);
+        try {
+            requestPermissionInternal(permission, callback);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private void requestPermissionInternal(String permission, PermissionCallback callback) {
+        if (activity == null) {
+            callback.onPermissionCancelled(permission);
+            return;
+        }
+
+        onEvent(permission, PermissionMetrics.Event.REQUESTED);
+        String[] resolved = PermissionResolver.resolve(permission);
+        if (resolved.length != 1 || !resolved[0].equals(permission)) {
+            requestResolvedPermission(permission, resolved, callback);
+            return;
+        }
+        if (!isPermissionDeclared(permission)) {
+            // The system would deny it without asking: skip the dialogs and the round-trip
+            onEvent(permission, PermissionMetrics.Event.NOT_DECLARED);
+            callback.onPermissionNotDeclared(permission);
+            return;
+        }
+
+        long checkStart = startStage();
+        boolean isGranted = isPermissionGranted(permission);
+        completeStage(permission, PermissionMetrics.Stage.CHECK, checkStart);
+
+        if (isGranted) {
+            recordAlreadyGranted(permission);
             callback.onPermissionGranted(permission);
             return;
         }
 
-        if (shouldShowRationale(permission)) {
-            showRationaleDialog(permission);
+        String key = permission;
+        String[] members = {permission};
+        PermissionGroup group = groupExpansionEnabled ? PermissionGroup.of(permission) : null;
+        if (group != null) {
+            key = GROUP_KEY_PREFIX + group.getName();
+            members = missingGroupMembers(group, permission);
+        }
+
+        PermissionRequest pending = requestRegistry.find(key);
+        if (pending != null && Arrays.asList(pending.permissions).contains(permission)) {
+            pending.addSubscriber(callback, permission);
+            return;
+        }
+        if (pending != null) {
+            // The pending group request doesn't cover this member, request it on its own
+            key = permission;
+            members = new String[]{permission};
+        }
+
+        PermissionRequest request = requestRegistry.register(key, members, false);
+        request.addSubscriber(callback, permission);
+
+        boolean showRationale = shouldShowRationale(permission);
+        switch (rationalePolicy.onRequest(permission, historyStore.getStats(permission), showRationale)) {
+            case SETTINGS:
+                showSettingsPrompt(request, permission);
+                break;
+            case RATIONALE:
+                showRationaleDialog(request);
+                break;
+            case DENY:
+                requestRegistry.remove(request);
+                request.dispatchDeniedToAll(!showRationale);
+                break;
+            default:
+                requestPermissionDirectly(request);
+                break;
+        }
+    }
+
+    /**
+     * Record a request answered without the system, for the history and metrics
+     */
+    private void recordAlreadyGranted(String permission) {
+        // May have been granted in Settings, outside this flow
+        historyStore.recordGranted(permission);
+        onEvent(permission, PermissionMetrics.Event.ALREADY_GRANTED);
+    }
+
+    /**
+     * Request the permissions a name stands for on this Android version, reporting under that name
+     * @param resolved The concrete permissions; empty when nothing needs to be granted
+     */
+    private void requestResolvedPermission(String permission, String[] resolved, PermissionCallback callback) {
+        if (resolved.length == 0) {
+            // Obsolete on this Android version: no prompt and no system call
+            onEvent(permission, PermissionMetrics.Event.ALREADY_GRANTED);
+            callback.onPermissionGranted(permission);
+            return;
+        }
+
+        List<String> declared = new ArrayList<>(resolved.length);
+        for (String concrete : resolved) {
+            if (isPermissionDeclared(concrete)) declared.add(concrete);
+        }
+        if (declared.isEmpty()) {
+            onEvent(permission, PermissionMetrics.Event.NOT_DECLARED);
+            callback.onPermissionNotDeclared(permission);
+        } else if (declared.size() == 1) {
+            requestPermissionInternal(declared.get(0), new ResolvedPermissionCallback(permission, callback, false));
         } else {
-            requestPermissionDirectly(permission);
+            requestPermissionsOnMainThread(declared.toArray(new String[0]),
+                    new ResolvedPermissionCallback(permission, callback, true));
         }
     }
 
+    /**
+     * Run an action that needs a permission, requesting it first if necessary.
+     * When the permission is already granted this is allocation-free and
+     * touches no manager state, so it is safe to call on every screen entry;
+     * the action then runs on the calling thread.
+     * @param permission The permission the action needs
+     * @param onGranted Action to run once the permission is granted
+     */
+    public void withPermission(@NonNull String permission, @NonNull Runnable onGranted) {
+        withPermission(permission, onGranted, null);
+    }
+
+    /**
+     * Run an action that needs a permission, requesting it first if necessary.
+     * When the permission is already granted this is allocation-free and
+     * touches no manager state.
+     * @param permission The permission the action needs
+     * @param onGranted Action to run once the permission is granted
+     * @param otherwise Optional callback for denial and cancellation; a reusable
+     *                  instance avoids allocating one per call
+     */
+    public void withPermission(@NonNull String permission, @NonNull Runnable onGranted,
+                               @Nullable PermissionCallback otherwise) {
+        if (stateCache.isGranted(permission)) {
+            onGranted.run();
+            return;
+        }
+        requestPermission(permission, new GrantedActionCallback(onGranted, otherwise));
+    }
+
+    /**
+     * Request several permissions with a single system round-trip.
+     * Already granted permissions are reported immediately, the rest are
+     * sent to the system in one call.
+     * @param permissions The permissions to request
+     * @param callback Callback to handle per-permission and aggregated results
+     */
+    public void requestPermissions(@NonNull String[] permissions, @NonNull MultiPermissionCallback callback) {
+        requestPermissionsOnAnyThread(permissions, ExecutorPermissionCallback.wrap(callback, callbackExecutor));
+    }
+
+    private void requestPermissionsOnAnyThread(String[] permissions, MultiPermissionCallback callback) {
+        if (isMainThread()) {
+            requestPermissionsOnMainThread(permissions, callback);
+        } else {
+            String[] requested = permissions.clone();
+            postToMainThread(() -> requestPermissionsOnMainThread(requested, callback));
+        }
+    }
+
+    private void requestPermissionsOnMainThread(String[] permissions, MultiPermissionCallback callback) {
+        if (activity == null) {
+            for (String permission : permissions) {
+                callback.onPermissionCancelled(permission);
+            }
+            callback.onPermissionsResult(new ArrayList<>(), new ArrayList<>(Arrays.asList(permissions)));
+            return;
+        }
+
+        List<String> granted = new ArrayList<>(permissions.length);
+        List<String> alreadyGranted = new ArrayList<>(permissions.length);
+        List<String> missing = new ArrayList<>(permissions.length);
+        List<String> undeclared = new ArrayList<>();
+        // Requested name -> the declared permissions it stands for
+        Map<String, String[]> resolvedNames = new LinkedHashMap<>();
+        boolean anyResolved = false;
+        for (String requested : permissions) {
+            String[] resolved = PermissionResolver.resolve(requested);
+            if (resolved.length == 0) {
+                // Obsolete on this Android version
+                if (!granted.contains(requested)) {
+                    granted.add(requested);
+                    callback.onPermissionGranted(requested);
+                }
+                continue;
+            }
+
+            List<String> declared = new ArrayList<>(resolved.length);
+            for (String permission : resolved) {
+                if (!isPermissionDeclared(permission)) continue;
+
+                declared.add(permission);
+                if (isPermissionGranted(permission)) {
+                    if (!alreadyGranted.contains(permission)) {
+                        historyStore.recordGranted(permission);
+                        alreadyGranted.add(permission);
+                    }
+                } else if (!missing.contains(permission)) {
+                    missing.add(permission);
+                }
+            }
+            if (declared.isEmpty()) {
+                if (!undeclared.contains(requested)) {
+                    undeclared.add(requested);
+                    callback.onPermissionNotDeclared(requested);
+                }
+                continue;
+            }
+            resolvedNames.put(requested, declared.toArray(new String[0]));
+            anyResolved |= !PermissionResolver.isUnchanged(requested);
+        }
+
+        if (anyResolved) {
+            // Report under the names the caller asked for, not the ones sent to the system
+            callback = new RequestedNamesCallback(callback, resolvedNames);
+        }
+        for (String permission : alreadyGranted) {
+            callback.onPermissionGranted(permission);
+        }
+        granted.addAll(alreadyGranted);
+
+        if (missing.isEmpty()) {
+            callback.onPermissionsResult(granted, undeclared);
+            return;
+        }
+        if (!undeclared.isEmpty()) {
+            // Undeclared permissions are reported as denied in the aggregated result
+            callback = new UndeclaredAwareCallback(callback, undeclared);
+        }
+
+        String[] requested = missing.toArray(new String[0]);
+        String key = batchKey(requested);
+        PermissionRequest pending = requestRegistry.find(key);
+        if (pending != null) {
+            pending.addBatchSubscriber(callback, granted);
+            return;
+        }
+
+        PermissionRequest request = requestRegistry.register(key, requested, true);
+        request.addBatchSubscriber(callback, granted);
+        requestPermissionDirectly(request);
+    }
+
+    /**
+     * Request a single permission and get its final result as a future.
+     * The future completes on the main thread, or right away on the calling thread
+     * when the permission is already granted; use the *Async stages to continue
+     * elsewhere. Independent work such as camera warm-up can run while the
+     * prompt is on screen, and several futures can be combined with
+     * {@link CompletableFuture#allOf}, their prompts being shown one at a time.
+     * @param permission The permission to request
+     */
+    @NonNull
+    public CompletableFuture<PermissionResult> requestPermissionAsync(@NonNull String permission) {
+        CompletableFuture<PermissionResult> future = new CompletableFuture<>();
+        requestPermissionOnAnyThread(permission, new FutureCallback(future));
+        return future;
+    }
+
+    /**
+     * Request several permissions with a single system round-trip and get
+     * every result as a future, completed on the main thread
+     * @param permissions The permissions to request
+     * @return Future of the results, keyed by permission
+     */
+    @NonNull
+    public CompletableFuture<Map<String, PermissionResult>> requestPermissionsAsync(@NonNull String[] permissions) {
+        CompletableFuture<Map<String, PermissionResult>> future = new CompletableFuture<>();
+        requestPermissionsOnAnyThread(permissions, new MultiFutureCallback(future));
+        return future;
+    }
+
+    /**
+     * Get the permission state cache backing this manager
+     */
+    @NonNull
+    public PermissionStateCache getStateCache() {
+        return stateCache;
+    }
+
     /**
      * Check if permission is already granted
      */
     private boolean isPermissionGranted(String permission) {
-        return ContextCompat.checkSelfPermission(activity, permission) == PackageManager.PERMISSION_GRANTED;
+        return stateCache.isGranted(permission);
+    }
+
+    /**
+     * Check if the manifest declares the permission; cheap after the first call
+     */
+    private boolean isPermissionDeclared(String permission) {
+        return DeclaredPermissions.getInstance(appContext).isDeclared(permission);
     }
 
     /**
@@ -80,105 +594,805 @@ public class PermissionManager {
     /**
      * Show rationale dialog with smooth UX
      */
-    private void showRationaleDialog(String permission) {
-        String title = PermissionUtils.getPermissionTitle(permission);
-        String message = PermissionUtils.getPermissionRationale(permission);
-        int iconRes = PermissionUtils.getPermissionIcon(permission);
+    private void showRationaleDialog(PermissionRequest request) {
+        beginTrace(TRACE_SHOW_RATIONALE);
+        try {
+            showRationaleDialogInternal(request);
+        } finally {
+            endTrace();
+        }
+    }
 
-        PermissionDialog dialog = new PermissionDialog(activity, title, message, iconRes);
+    private void showRationaleDialogInternal(PermissionRequest request) {
+        String permission = request.permissions[0];
+        PermissionMetadata metadata = PermissionUtils.getMetadata(permission);
+
+        PermissionDialog dialog = new PermissionDialog(activity,
+                metadata.getTitle(), metadata.getRationale(), metadata.getIconRes());
+        dialog.setViewCache(dialogViewCache);
+        dialog.setAnimationMode(dialogAnimationMode);
+        dialog.setOnFrameStatsListener(dialogFrameStatsListener);
         dialog.setOnPermissionDialogListener(new PermissionDialog.OnPermissionDialogListener() {
             @Override
             public void onAllow() {
-                requestPermissionDirectly(permission);
+                completeStage(permission, PermissionMetrics.Stage.RATIONALE, request.stageStartNanos);
+                onEvent(permission, PermissionMetrics.Event.RATIONALE_ACCEPTED);
+                requestPermissionDirectly(request);
             }
 
             @Override
             public void onDeny() {
-                callback.onPermissionDenied(permission, false);
+                completeStage(permission, PermissionMetrics.Stage.RATIONALE, request.stageStartNanos);
+                onEvent(permission, PermissionMetrics.Event.RATIONALE_DECLINED);
+                requestRegistry.remove(request);
+                request.dispatchDeniedToAll(false);
             }
 
             @Override
             public void onCancel() {
-                callback.onPermissionCancelled(permission);
+                completeStage(permission, PermissionMetrics.Stage.RATIONALE, request.stageStartNanos);
+                onEvent(permission, PermissionMetrics.Event.CANCELLED);
+                requestRegistry.remove(request);
+                request.dispatchCancelledToAll();
             }
         });
-        dialog.show();
+        onEvent(permission, PermissionMetrics.Event.RATIONALE_SHOWN);
+        historyStore.recordRationaleShown(permission);
+        request.rationaleShown = true;
+        request.stageStartNanos = startStage();
+        showTracked(dialog);
+    }
+
+    /**
+     * Request permission directly from system, queued behind any prompt already on screen
+     */
+    private void requestPermissionDirectly(PermissionRequest request) {
+        beginTrace(TRACE_REQUEST_DIRECTLY);
+        try {
+            for (String permission : request.permissions) {
+                historyStore.recordRequested(permission);
+                // Overlap preparation with the prompt, including time spent queued behind another one
+                warmUps.start(permission);
+            }
+            PermissionRequest next = requestRegistry.enqueueSystemRequest(request);
+            if (next != null) {
+                launchSystemRequest(next);
+            }
+        } finally {
+            endTrace();
+        }
+    }
+
+    /**
+     * Launch a request whose turn came while this manager was detached, e.g. because
+     * another manager of the screen finished its prompt during a configuration change
+     */
+    private void resumeSystemQueue() {
+        if (activity == null) return;
+
+        PermissionRequest next = requestRegistry.resumeSystemQueue();
+        if (next != null) {
+            launchSystemRequest(next);
+        }
     }
 
     /**
-     * Request permission directly from system
+     * Put the system prompt of a request on screen
      */
-    private void requestPermissionDirectly(String permission) {
-        ActivityCompat.requestPermissions(activity, new String[]{permission}, PERMISSION_REQUEST_CODE);
+    private void launchSystemRequest(PermissionRequest request) {
+        onEvent(request.permissions[0], PermissionMetrics.Event.SYSTEM_PROMPT_SHOWN);
+        request.stageStartNanos = startStage();
+        requestLauncher.launch(activity, request);
     }
 
     /**
      * Handle permission result - call this from onRequestPermissionsResult
      */
     public void handlePermissionResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
-        if (requestCode != PERMISSION_REQUEST_CODE) return;
+        if (!isMainThread()) {
+            postToMainThread(() -> handlePermissionResult(requestCode, permissions, grantResults));
+            return;
+        }
 
-        if (permissions.length == 0) return;
+        PermissionRequest request = requestRegistry.get(requestCode);
+        if (request == null) return;
 
-        String permission = permissions[0];
-        boolean isGranted = grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED;
+        dispatchSystemResult(request, permissions, grantResults);
+    }
 
-        if (isGranted) {
-            callback.onPermissionGranted(permission);
+    /**
+     * Handle the result of the prompt currently on screen, for launchers
+     * that don't carry a request code
+     */
+    void handleActiveRequestResult(@NonNull String[] permissions, @NonNull int[] grantResults) {
+        PermissionRequest request = requestRegistry.getActiveSystemRequest();
+        if (request == null) return;
+
+        dispatchSystemResult(request, permissions, grantResults);
+    }
+
+    private void dispatchSystemResult(PermissionRequest request, String[] permissions, int[] grantResults) {
+        beginTrace(TRACE_HANDLE_RESULT);
+        try {
+            String primary = request.permissions[0];
+            completeStage(primary, PermissionMetrics.Stage.SYSTEM_PROMPT, request.stageStartNanos);
+            long dispatchStart = startStage();
+
+            dispatchSystemResultInternal(request, permissions, grantResults);
+
+            completeStage(primary, PermissionMetrics.Stage.RESULT_DISPATCH, dispatchStart);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private void dispatchSystemResultInternal(PermissionRequest request, String[] permissions, int[] grantResults) {
+        PermissionRequest next = requestRegistry.completeSystemRequest(request);
+
+        for (int i = 0; i < permissions.length && i < grantResults.length; i++) {
+            boolean isGranted = grantResults[i] == PackageManager.PERMISSION_GRANTED;
+            stateCache.put(permissions[i], isGranted);
+            if (isGranted) {
+                historyStore.recordGranted(permissions[i]);
+                if (request.rationaleShown && permissions[i].equals(request.permissions[0])) {
+                    historyStore.recordGrantedAfterRationale(permissions[i]);
+                }
+                onEvent(permissions[i], PermissionMetrics.Event.GRANTED);
+                warmUps.commit(permissions[i]);
+            } else {
+                historyStore.recordDenied(permissions[i]);
+                onEvent(permissions[i], PermissionMetrics.Event.DENIED);
+                warmUps.cancel(permissions[i]);
+            }
+        }
+        if (permissions.length == 0) {
+            onEvent(request.permissions[0], PermissionMetrics.Event.CANCELLED);
+            for (String permission : request.permissions) {
+                warmUps.cancel(permission);
+            }
+        }
+
+        if (!request.hasSubscribers()) {
+            // Retained across a configuration change and nobody re-attached
+            requestRegistry.remove(request);
+        } else if (request.batch) {
+            handleBatchResult(request, permissions, grantResults);
+        } else if (permissions.length == 0) {
+            // An empty result means the request was interrupted before the user answered
+            requestRegistry.remove(request);
+            request.dispatchCancelledToAll();
         } else {
-            handlePermissionDenied(permission);
+            String deniedPermission = null;
+            for (int i = 0; i < permissions.length; i++) {
+                String permission = permissions[i];
+                boolean isGranted = i < grantResults.length && grantResults[i] == PackageManager.PERMISSION_GRANTED;
+
+                if (isGranted) {
+                    request.dispatchGranted(permission);
+                } else if (deniedPermission == null && request.isAwaiting(permission)) {
+                    // Group members nobody asked for don't drive the retry flow
+                    deniedPermission = permission;
+                }
+            }
+
+            if (deniedPermission != null) {
+                handlePermissionDenied(request, deniedPermission);
+            } else {
+                requestRegistry.remove(request);
+                request.dispatchCancelledToAll();
+            }
+        }
+
+        if (next != null && activity != null) {
+            launchSystemRequest(next);
         }
     }
 
+    /**
+     * Dispatch the result of a batched request, one entry per permission
+     */
+    private void handleBatchResult(PermissionRequest request, String[] permissions, int[] grantResults) {
+        requestRegistry.remove(request);
+
+        List<String> granted = new ArrayList<>(request.permissions.length);
+        List<String> denied = new ArrayList<>(request.permissions.length);
+
+        // An empty result means the request was interrupted before the user answered
+        if (permissions.length == 0) {
+            for (String permission : request.permissions) {
+                denied.add(permission);
+                request.dispatchCancelled(permission);
+            }
+            request.dispatchBatchResult(granted, denied);
+            return;
+        }
+
+        for (int i = 0; i < permissions.length; i++) {
+            String permission = permissions[i];
+            boolean isGranted = i < grantResults.length && grantResults[i] == PackageManager.PERMISSION_GRANTED;
+
+            if (isGranted) {
+                granted.add(permission);
+                request.dispatchGranted(permission);
+            } else {
+                denied.add(permission);
+                request.dispatchDenied(permission, !shouldShowRationale(permission));
+            }
+        }
+        request.dispatchBatchResult(granted, denied);
+    }
+
     /**
      * Handle permission denied with retry logic
      */
-    private void handlePermissionDenied(String permission) {
+    private void handlePermissionDenied(PermissionRequest request, String permission) {
         int retryCount = permissionRetryCount.getOrDefault(permission, 0);
-        boolean isPermanentlyDenied = !shouldShowRationale(permission) && retryCount > 0;
-
-        if (isPermanentlyDenied) {
-            showSettingsPrompt(permission);
-        } else if (retryCount < MAX_RETRY_COUNT) {
-            // Auto retry once
-            permissionRetryCount.put(permission, retryCount + 1);
-            showRationaleDialog(permission);
-        } else {
-            callback.onPermissionDenied(permission, false);
+        boolean showRationale = shouldShowRationale(permission);
+        PermissionStats stats = historyStore.getStats(permission);
+
+        switch (rationalePolicy.onDenied(permission, stats, showRationale, retryCount)) {
+            case SETTINGS:
+                showSettingsPrompt(request, permission);
+                break;
+            case RATIONALE:
+                permissionRetryCount.put(permission, retryCount + 1);
+                showRationaleDialog(request);
+                break;
+            case REQUEST:
+                permissionRetryCount.put(permission, retryCount + 1);
+                requestPermissionDirectly(request);
+                break;
+            default:
+                // The streak already includes this denial, so > 1 means it was denied in an earlier session too
+                boolean deniedBefore = retryCount > 0 || stats.getDenyStreak() > 1;
+                requestRegistry.remove(request);
+                request.dispatchDeniedToAll(!showRationale && deniedBefore);
+                break;
         }
     }
 
     /**
      * Show settings prompt for permanently denied permissions
      */
-    private void showSettingsPrompt(String permission) {
+    private void showSettingsPrompt(PermissionRequest request, String permission) {
+        beginTrace(TRACE_SHOW_SETTINGS_PROMPT);
+        try {
+            showSettingsPromptInternal(request, permission);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private void showSettingsPromptInternal(PermissionRequest request, String permission) {
         String title = "Permission Required";
         String message = String.format("Please enable %s permission in Settings to continue.",
                 PermissionUtils.getPermissionTitle(permission));
 
         PermissionSettingsPrompt prompt = new PermissionSettingsPrompt(activity, title, message);
+        prompt.setViewCache(dialogViewCache);
+        prompt.setAnimationMode(dialogAnimationMode);
+        prompt.setOnFrameStatsListener(dialogFrameStatsListener);
         prompt.setOnSettingsPromptListener(new PermissionSettingsPrompt.OnSettingsPromptListener() {
             @Override
             public void onOpenSettings() {
-                openAppSettings();
+                completeStage(permission, PermissionMetrics.Stage.SETTINGS_PROMPT, request.stageStartNanos);
+                onEvent(permission, PermissionMetrics.Event.SETTINGS_OPENED);
+                openAppSettings(request);
             }
 
             @Override
             public void onCancel() {
-                callback.onPermissionDenied(permission, true);
+                completeStage(permission, PermissionMetrics.Stage.SETTINGS_PROMPT, request.stageStartNanos);
+                onEvent(permission, PermissionMetrics.Event.SETTINGS_DECLINED);
+                requestRegistry.remove(request);
+                request.dispatchDeniedToAll(true);
             }
         });
-        prompt.show();
+        onEvent(permission, PermissionMetrics.Event.SETTINGS_PROMPT_SHOWN);
+        request.stageStartNanos = startStage();
+        showTracked(prompt);
     }
 
     /**
-     * Open app settings
+     * Show a dialog and remember it so it can be dismissed on detach
      */
-    private void openAppSettings() {
+    private void showTracked(Dialog dialog) {
+        visibleDialogs.add(dialog);
+        dialog.setOnDismissListener(d -> visibleDialogs.remove(dialog));
+        dialog.show();
+    }
+
+    /**
+     * Open app settings and deliver the final result of the request once the user comes back
+     */
+    private void openAppSettings(PermissionRequest request) {
         Intent intent = new Intent(Settings.ACTION_APPLICATION_DETAILS_SETTINGS);
         Uri uri = Uri.fromParts("package", activity.getPackageName(), null);
         intent.setData(uri);
+        // Anything may change while the user is in Settings
+        stateCache.invalidateAll();
+        watchSettingsReturn(request);
         activity.startActivity(intent);
     }
-}
 
+    /**
+     * Keep the request pending while the user is in Settings
+     */
+    private void watchSettingsReturn(PermissionRequest request) {
+        cancelSettingsReturn();
+        requestRegistry.awaitSettingsReturn(request);
+        request.stageStartNanos = startStage();
+        watchSettingsReturn(request, false);
+        for (String permission : request.permissions) {
+            warmUps.start(permission);
+        }
+    }
+
+    private void watchSettingsReturn(PermissionRequest request, boolean hasLeft) {
+        settingsReturnWatcher = new SettingsReturnWatcher(activity, hasLeft, new SettingsReturnWatcher.Listener() {
+            @Override
+            public void onReturnedFromSettings() {
+                settingsReturnWatcher = null;
+                completeStage(request.permissions[0], PermissionMetrics.Stage.SETTINGS_ROUND_TRIP,
+                        request.stageStartNanos);
+                handleSettingsReturn(request);
+            }
+
+            @Override
+            public void onSettingsAbandoned(boolean isChangingConfigurations) {
+                settingsReturnWatcher = null;
+                // The recreated activity's manager delivers the result
+                if (isChangingConfigurations) return;
+
+                requestRegistry.remove(request);
+                for (String permission : request.permissions) {
+                    warmUps.cancel(permission);
+                }
+            }
+        });
+        settingsReturnWatcher.start();
+    }
+
+    /**
+     * Pick up a Settings round trip started by a previous instance of the activity.
+     * Callers join it by requesting the permission again, as with system prompts.
+     */
+    private void resumeSettingsReturn() {
+        PermissionRequest request = requestRegistry.getSettingsRequest();
+        if (request == null || activity == null || settingsReturnWatcher != null) return;
+
+        if (activity instanceof LifecycleOwner && ((LifecycleOwner) activity).getLifecycle()
+                .getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+            // Already back in front
+            handleSettingsReturn(request);
+        } else {
+            watchSettingsReturn(request, true);
+        }
+    }
+
+    private void cancelSettingsReturn() {
+        if (settingsReturnWatcher != null) {
+            settingsReturnWatcher.cancel();
+            settingsReturnWatcher = null;
+        }
+    }
+
+    /**
+     * Re-check only the permissions of the request and deliver their final result
+     */
+    private void handleSettingsReturn(PermissionRequest request) {
+        requestRegistry.remove(request);
+
+        for (String permission : request.permissions) {
+            // Don't depend on the resume invalidation having run before us
+            stateCache.invalidate(permission);
+            if (stateCache.isGranted(permission)) {
+                historyStore.recordGranted(permission);
+                onEvent(permission, PermissionMetrics.Event.GRANTED);
+                warmUps.commit(permission);
+                request.dispatchGranted(permission);
+            } else {
+                warmUps.cancel(permission);
+            }
+        }
+        // Still off after a visit to Settings: only Settings can change it
+        request.dispatchDeniedToAll(true);
+    }
+
+    private static boolean isMainThread() {
+        return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    /**
+     * Queue work for the main thread; everything queued before it gets there runs in one message
+     */
+    private void postToMainThread(Runnable work) {
+        pendingMainWork.add(work);
+        if (mainWorkScheduled.compareAndSet(false, true)) {
+            mainHandler.post(drainMainWork);
+        }
+    }
+
+    private void drainMainWork() {
+        mainWorkScheduled.set(false);
+        Runnable work;
+        while ((work = pendingMainWork.poll()) != null) {
+            work.run();
+        }
+    }
+
+    /**
+     * Start timing a stage; free when no metrics listener is installed
+     */
+    private long startStage() {
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    private void completeStage(String permission, PermissionMetrics.Stage stage, long startNanos) {
+        PermissionMetrics listener = metrics;
+        if (listener != null && startNanos != 0) {
+            listener.onStageCompleted(permission, stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void onEvent(String permission, PermissionMetrics.Event event) {
+        PermissionMetrics listener = metrics;
+        if (listener != null) {
+            listener.onEvent(permission, event);
+        }
+    }
+
+    private void beginTrace(String sectionName) {
+        if (tracingEnabled) {
+            Trace.beginSection(sectionName);
+        }
+    }
+
+    private void endTrace() {
+        if (tracingEnabled) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Members of a group that still need to be requested, the requested permission first
+     */
+    private String[] missingGroupMembers(PermissionGroup group, String permission) {
+        List<String> members = new ArrayList<>();
+        members.add(permission);
+        for (String member : group.getPermissions()) {
+            // Only weaker members: COARSE stays COARSE, FINE brings COARSE along
+            if (group.implies(permission, member) && PermissionResolver.isUnchanged(member)
+                    && isPermissionDeclared(member) && !isPermissionGranted(member)) {
+                members.add(member);
+            }
+        }
+        return members.toArray(new String[0]);
+    }
+
+    /**
+     * Order-independent key used to coalesce identical batches
+     */
+    private static String batchKey(String[] permissions) {
+        String[] sorted = permissions.clone();
+        Arrays.sort(sorted);
+        return BATCH_KEY_PREFIX + String.join(",", sorted);
+    }
+
+    /**
+     * Runs an action on grant and forwards everything else
+     */
+    private static final class GrantedActionCallback implements PermissionCallback {
+        private final Runnable onGranted;
+        private final PermissionCallback otherwise;
+
+        GrantedActionCallback(Runnable onGranted, PermissionCallback otherwise) {
+            this.onGranted = onGranted;
+            this.otherwise = otherwise;
+        }
+
+        @Override
+        public void onPermissionGranted(String permission) {
+            onGranted.run();
+        }
+
+        @Override
+        public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
+            if (otherwise != null) otherwise.onPermissionDenied(permission, isPermanentlyDenied);
+        }
+
+        @Override
+        public void onPermissionCancelled(String permission) {
+            if (otherwise != null) otherwise.onPermissionCancelled(permission);
+        }
+
+        @Override
+        public void onPermissionNotDeclared(String permission) {
+            if (otherwise != null) otherwise.onPermissionNotDeclared(permission);
+        }
+    }
+
+    /**
+     * Reports the result of the concrete permissions a name resolved to under that name
+     */
+    private static final class ResolvedPermissionCallback implements MultiPermissionCallback {
+        private final String permission;
+        private final PermissionCallback delegate;
+        // Batches report once, from the aggregated result
+        private final boolean batch;
+        private boolean permanentlyDenied;
+        private boolean cancelled;
+
+        ResolvedPermissionCallback(String permission, PermissionCallback delegate, boolean batch) {
+            this.permission = permission;
+            this.delegate = delegate;
+            this.batch = batch;
+        }
+
+        @Override
+        public void onPermissionGranted(String concrete) {
+            if (!batch) delegate.onPermissionGranted(permission);
+        }
+
+        @Override
+        public void onPermissionDenied(String concrete, boolean isPermanentlyDenied) {
+            if (batch) {
+                permanentlyDenied |= isPermanentlyDenied;
+            } else {
+                delegate.onPermissionDenied(permission, isPermanentlyDenied);
+            }
+        }
+
+        @Override
+        public void onPermissionCancelled(String concrete) {
+            if (batch) {
+                cancelled = true;
+            } else {
+                delegate.onPermissionCancelled(permission);
+            }
+        }
+
+        @Override
+        public void onPermissionNotDeclared(String concrete) {
+            if (!batch) delegate.onPermissionNotDeclared(permission);
+        }
+
+        @Override
+        public void onPermissionsResult(List<String> granted, List<String> denied) {
+            if (denied.isEmpty()) {
+                delegate.onPermissionGranted(permission);
+            } else if (cancelled && !permanentlyDenied) {
+                delegate.onPermissionCancelled(permission);
+            } else {
+                delegate.onPermissionDenied(permission, permanentlyDenied);
+            }
+        }
+    }
+
+    /**
+     * Reports a batch under the names the caller requested when some of them stand for
+     * other permissions on this Android version, e.g. READ_EXTERNAL_STORAGE for the
+     * READ_MEDIA_* permissions. A name is granted once all of its permissions are.
+     * Names outside the map, i.e. obsolete and undeclared ones, pass through.
+     */
+    private static final class RequestedNamesCallback implements MultiPermissionCallback {
+        private final MultiPermissionCallback delegate;
+        private final Map<String, String[]> resolvedNames;
+        private final Map<String, PermissionResult.Status> outcomes = new HashMap<>();
+        private final Set<String> reported = new HashSet<>();
+        private final Set<String> concrete = new HashSet<>();
+
+        RequestedNamesCallback(MultiPermissionCallback delegate, Map<String, String[]> resolvedNames) {
+            this.delegate = delegate;
+            this.resolvedNames = resolvedNames;
+            for (String[] permissions : resolvedNames.values()) {
+                concrete.addAll(Arrays.asList(permissions));
+            }
+        }
+
+        @Override
+        public void onPermissionGranted(String permission) {
+            record(permission, PermissionResult.Status.GRANTED);
+        }
+
+        @Override
+        public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
+            record(permission, isPermanentlyDenied
+                    ? PermissionResult.Status.PERMANENTLY_DENIED
+                    : PermissionResult.Status.DENIED);
+        }
+
+        @Override
+        public void onPermissionCancelled(String permission) {
+            record(permission, PermissionResult.Status.CANCELLED);
+        }
+
+        @Override
+        public void onPermissionNotDeclared(String permission) {
+            delegate.onPermissionNotDeclared(permission);
+        }
+
+        @Override
+        public void onPermissionsResult(List<String> granted, List<String> denied) {
+            List<String> requestedGranted = new ArrayList<>(resolvedNames.size());
+            List<String> requestedDenied = new ArrayList<>(resolvedNames.size());
+            for (String permission : granted) {
+                if (!concrete.contains(permission)) requestedGranted.add(permission);
+            }
+            for (String permission : denied) {
+                if (!concrete.contains(permission)) requestedDenied.add(permission);
+            }
+            for (Map.Entry<String, String[]> entry : resolvedNames.entrySet()) {
+                boolean allGranted = granted.containsAll(Arrays.asList(entry.getValue()));
+                (allGranted ? requestedGranted : requestedDenied).add(entry.getKey());
+            }
+            delegate.onPermissionsResult(requestedGranted, requestedDenied);
+        }
+
+        private void record(String permission, PermissionResult.Status status) {
+            if (!concrete.contains(permission)) {
+                // Obsolete name, reported as is
+                forward(permission, status);
+                return;
+            }
+
+            outcomes.put(permission, status);
+            for (Map.Entry<String, String[]> entry : resolvedNames.entrySet()) {
+                String requested = entry.getKey();
+                if (reported.contains(requested) || !Arrays.asList(entry.getValue()).contains(permission)) continue;
+
+                PermissionResult.Status combined = combine(entry.getValue());
+                if (combined != null) {
+                    reported.add(requested);
+                    forward(requested, combined);
+                }
+            }
+        }
+
+        /**
+         * Worst outcome of a requested name's permissions, or null while some are still pending
+         */
+        private PermissionResult.Status combine(String[] permissions) {
+            PermissionResult.Status combined = PermissionResult.Status.GRANTED;
+            for (String permission : permissions) {
+                PermissionResult.Status status = outcomes.get(permission);
+                if (status == null) return null;
+                if (status == PermissionResult.Status.PERMANENTLY_DENIED
+                        || (status == PermissionResult.Status.DENIED
+                        && combined != PermissionResult.Status.PERMANENTLY_DENIED)
+                        || (status == PermissionResult.Status.CANCELLED
+                        && combined == PermissionResult.Status.GRANTED)) {
+                    combined = status;
+                }
+            }
+            return combined;
+        }
+
+        private void forward(String permission, PermissionResult.Status status) {
+            switch (status) {
+                case GRANTED:
+                    delegate.onPermissionGranted(permission);
+                    break;
+                case CANCELLED:
+                    delegate.onPermissionCancelled(permission);
+                    break;
+                default:
+                    delegate.onPermissionDenied(permission, status == PermissionResult.Status.PERMANENTLY_DENIED);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Adds the undeclared permissions of a batch to its aggregated denied list
+     */
+    private static final class UndeclaredAwareCallback implements MultiPermissionCallback {
+        private final MultiPermissionCallback delegate;
+        private final List<String> undeclared;
+
+        UndeclaredAwareCallback(MultiPermissionCallback delegate, List<String> undeclared) {
+            this.delegate = delegate;
+            this.undeclared = undeclared;
+        }
+
+        @Override
+        public void onPermissionGranted(String permission) {
+            delegate.onPermissionGranted(permission);
+        }
+
+        @Override
+        public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
+            delegate.onPermissionDenied(permission, isPermanentlyDenied);
+        }
+
+        @Override
+        public void onPermissionCancelled(String permission) {
+            delegate.onPermissionCancelled(permission);
+        }
+
+        @Override
+        public void onPermissionsResult(List<String> granted, List<String> denied) {
+            List<String> allDenied = new ArrayList<>(denied);
+            allDenied.addAll(undeclared);
+            delegate.onPermissionsResult(granted, allDenied);
+        }
+    }
+
+    /**
+     * Completes a future with the final result of a single permission
+     */
+    private static final class FutureCallback implements PermissionCallback {
+        private final CompletableFuture<PermissionResult> future;
+
+        FutureCallback(CompletableFuture<PermissionResult> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void onPermissionGranted(String permission) {
+            future.complete(new PermissionResult(permission, PermissionResult.Status.GRANTED));
+        }
+
+        @Override
+        public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
+            future.complete(PermissionResult.denied(permission, isPermanentlyDenied));
+        }
+
+        @Override
+        public void onPermissionCancelled(String permission) {
+            future.complete(new PermissionResult(permission, PermissionResult.Status.CANCELLED));
+        }
+
+        @Override
+        public void onPermissionNotDeclared(String permission) {
+            future.complete(new PermissionResult(permission, PermissionResult.Status.NOT_DECLARED));
+        }
+    }
+
+    /**
+     * Collects the per-permission results of a batch and completes a future with all of them
+     */
+    private static final class MultiFutureCallback implements MultiPermissionCallback {
+        private final CompletableFuture<Map<String, PermissionResult>> future;
+        private final Map<String, PermissionResult> results = new LinkedHashMap<>();
+
+        MultiFutureCallback(CompletableFuture<Map<String, PermissionResult>> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void onPermissionGranted(String permission) {
+            results.put(permission, new PermissionResult(permission, PermissionResult.Status.GRANTED));
+        }
+
+        @Override
+        public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
+            results.put(permission, PermissionResult.denied(permission, isPermanentlyDenied));
+        }
+
+        @Override
+        public void onPermissionCancelled(String permission) {
+            results.put(permission, new PermissionResult(permission, PermissionResult.Status.CANCELLED));
+        }
+
+        @Override
+        public void onPermissionNotDeclared(String permission) {
+            results.put(permission, new PermissionResult(permission, PermissionResult.Status.NOT_DECLARED));
+        }
+
+        @Override
+        public void onPermissionsResult(List<String> granted, List<String> denied) {
+            for (String permission : granted) {
+                if (!results.containsKey(permission)) {
+                    results.put(permission, new PermissionResult(permission, PermissionResult.Status.GRANTED));
+                }
+            }
+            for (String permission : denied) {
+                if (!results.containsKey(permission)) {
+                    results.put(permission, PermissionResult.denied(permission, false));
+                }
+            }
+            future.complete(Collections.unmodifiableMap(results));
+        }
+    }
+}
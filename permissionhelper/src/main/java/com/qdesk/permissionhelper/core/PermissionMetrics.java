@@ -0,0 +1,62 @@
+package com.qdesk.permissionhelper.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Listener for timing and funnel events of the permission flow.
+ * Install one with {@link PermissionManager#setMetrics(PermissionMetrics)};
+ * when none is installed, the manager skips all timing work.
+ * Called on the thread that drives the flow, so keep implementations cheap.
+ */
+public interface PermissionMetrics {
+
+    /**
+     * Timed stages of the permission flow
+     */
+    enum Stage {
+        /** Granted-state check at the start of a request */
+        CHECK,
+        /** Rationale dialog on screen until the user answers */
+        RATIONALE,
+        /** System prompt launched until its result arrives, including user think time */
+        SYSTEM_PROMPT,
+        /** Handling of a system result, including callbacks */
+        RESULT_DISPATCH,
+        /** Settings prompt on screen until the user answers */
+        SETTINGS_PROMPT,
+        /** App details screen opened until the user comes back */
+        SETTINGS_ROUND_TRIP
+    }
+
+    /**
+     * Funnel steps of the permission flow
+     */
+    enum Event {
+        REQUESTED,
+        ALREADY_GRANTED,
+        RATIONALE_SHOWN,
+        RATIONALE_ACCEPTED,
+        RATIONALE_DECLINED,
+        SYSTEM_PROMPT_SHOWN,
+        GRANTED,
+        DENIED,
+        SETTINGS_PROMPT_SHOWN,
+        SETTINGS_OPENED,
+        SETTINGS_DECLINED,
+        CANCELLED,
+        NOT_DECLARED
+    }
+
+    /**
+     * Called when a stage finishes
+     * @param permission The permission the stage belongs to
+     * @param stage The stage
+     * @param durationNanos How long the stage took
+     */
+    void onStageCompleted(@NonNull String permission, @NonNull Stage stage, long durationNanos);
+
+    /**
+     * Called when the flow passes a funnel step
+     */
+    void onEvent(@NonNull String permission, @NonNull Event event);
+}
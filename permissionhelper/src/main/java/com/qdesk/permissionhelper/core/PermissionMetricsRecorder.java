@@ -0,0 +1,93 @@
+package com.qdesk.permissionhelper.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ready-made {@link PermissionMetrics} that aggregates latency histograms per
+ * stage and funnel counters per event, across all permissions.
+ * <p>
+ * Histograms use power-of-two nanosecond buckets, so recording is a couple of
+ * atomic increments with no allocation. Percentiles are reported as the upper
+ * bound of the bucket they fall into.
+ */
+public class PermissionMetricsRecorder implements PermissionMetrics {
+
+    private static final int BUCKET_COUNT = 64;
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Event[] EVENTS = Event.values();
+
+    private final AtomicLongArray histograms = new AtomicLongArray(STAGES.length * BUCKET_COUNT);
+    private final AtomicLongArray eventCounts = new AtomicLongArray(EVENTS.length);
+
+    @Override
+    public void onStageCompleted(@NonNull String permission, @NonNull Stage stage, long durationNanos) {
+        histograms.incrementAndGet(stage.ordinal() * BUCKET_COUNT + bucketOf(durationNanos));
+    }
+
+    @Override
+    public void onEvent(@NonNull String permission, @NonNull Event event) {
+        eventCounts.incrementAndGet(event.ordinal());
+    }
+
+    /**
+     * Number of times the flow passed a funnel step
+     */
+    public long getEventCount(@NonNull Event event) {
+        return eventCounts.get(event.ordinal());
+    }
+
+    /**
+     * Number of recorded samples for a stage
+     */
+    public long getSampleCount(@NonNull Stage stage) {
+        long count = 0;
+        int offset = stage.ordinal() * BUCKET_COUNT;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += histograms.get(offset + i);
+        }
+        return count;
+    }
+
+    /**
+     * Approximate latency percentile of a stage
+     * @param percentile Value between 0 and 1, e.g. 0.9 for p90
+     * @return Upper bound of the bucket holding the percentile, or 0 without samples
+     */
+    public long getPercentileNanos(@NonNull Stage stage, double percentile) {
+        long total = getSampleCount(stage);
+        if (total == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        int offset = stage.ordinal() * BUCKET_COUNT;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += histograms.get(offset + i);
+            if (seen >= target) return bucketUpperBound(i);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Clear all histograms and counters
+     */
+    public void reset() {
+        for (int i = 0; i < histograms.length(); i++) {
+            histograms.set(i, 0);
+        }
+        for (int i = 0; i < eventCounts.length(); i++) {
+            eventCounts.set(i, 0);
+        }
+    }
+
+    private static int bucketOf(long durationNanos) {
+        if (durationNanos <= 0) return 0;
+        return Math.min(BUCKET_COUNT - 1, BUCKET_COUNT - Long.numberOfLeadingZeros(durationNanos));
+    }
+
+    private static long bucketUpperBound(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,84 @@
+package com.qdesk.permissionhelper.core;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+
+/**
+ * Activity-free, thread-safe permission state queries for Services, workers and
+ * other background code. Backed by the same {@link PermissionStateCache} as
+ * {@link PermissionManager}, so a state already known to the UI costs no binder call.
+ * <p>
+ * Granted answers are always current, as revoking a permission restarts the
+ * process. A denied answer is refreshed whenever an activity resumes; a process
+ * that shows no UI can force a fresh answer with {@link #refresh(String)}.
+ */
+public final class PermissionQuery {
+
+    /** Maximum number of permissions in one bulk check */
+    public static final int MAX_BULK_SIZE = Long.SIZE;
+
+    private final PermissionStateCache stateCache;
+
+    public PermissionQuery(@NonNull Context context) {
+        this.stateCache = PermissionStateCache.getInstance(context);
+    }
+
+    /**
+     * Check if a permission is granted
+     */
+    public boolean isGranted(@NonNull String permission) {
+        return stateCache.isGranted(permission);
+    }
+
+    /**
+     * Check several permissions in one call
+     * @param permissions Up to {@link #MAX_BULK_SIZE} permissions
+     * @return Bitset with bit i set if permissions[i] is granted
+     */
+    public long checkAll(@NonNull String... permissions) {
+        if (permissions.length > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_SIZE + " permissions per call, got "
+                    + permissions.length);
+        }
+
+        long granted = 0;
+        for (int i = 0; i < permissions.length; i++) {
+            if (stateCache.isGranted(permissions[i])) {
+                granted |= 1L << i;
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * Check if every permission is granted, stopping at the first one that isn't
+     */
+    public boolean areAllGranted(@NonNull String... permissions) {
+        for (String permission : permissions) {
+            if (!stateCache.isGranted(permission)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drop the cached state of a permission and query it again
+     */
+    public boolean refresh(@NonNull String permission) {
+        stateCache.invalidate(permission);
+        return stateCache.isGranted(permission);
+    }
+
+    /**
+     * Check if the permission at an index of a bulk check was granted
+     */
+    public static boolean isGranted(long grantedBits, int index) {
+        return (grantedBits & (1L << index)) != 0;
+    }
+
+    /**
+     * Bitset with the lowest count bits set, i.e. "all of a bulk check of count permissions granted"
+     */
+    public static long allGranted(int count) {
+        return count >= Long.SIZE ? -1L : (1L << count) - 1;
+    }
+}
@@ -0,0 +1,169 @@
+package com.qdesk.permissionhelper.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A single in-flight permission request and every callback waiting on it.
+ * <p>
+ * Single-permission subscribers wait on one permission and are released once
+ * it has a final result. Batch subscribers receive every permission of the
+ * request and are released with the aggregated result.
+ */
+final class PermissionRequest {
+
+    final int requestCode;
+    final String key;
+    final String[] permissions;
+    final boolean batch;
+    // Start of the stage currently timed for metrics, 0 when metrics are off
+    long stageStartNanos;
+    // Whether our rationale was shown for the primary permission, for outcome statistics
+    boolean rationaleShown;
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    PermissionRequest(int requestCode, String key, String[] permissions, boolean batch) {
+        this.requestCode = requestCode;
+        this.key = key;
+        this.permissions = permissions;
+        this.batch = batch;
+    }
+
+    /**
+     * Attach a callback waiting on one permission of this request
+     */
+    void addSubscriber(PermissionCallback callback, String permission) {
+        subscribers.add(new Subscriber(callback, permission, null));
+    }
+
+    /**
+     * Attach a callback waiting on the whole batch
+     * @param preGranted Permissions of the batch that were already granted for this caller
+     */
+    void addBatchSubscriber(PermissionCallback callback, List<String> preGranted) {
+        subscribers.add(new Subscriber(callback, null, preGranted));
+    }
+
+    /**
+     * Drop every callback, e.g. when the owning screen is destroyed
+     */
+    void clearSubscribers() {
+        subscribers.clear();
+    }
+
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Check if any subscriber is still waiting on this permission
+     */
+    boolean isAwaiting(String permission) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.matches(permission)) return true;
+        }
+        return false;
+    }
+
+    void dispatchGranted(String permission) {
+        Iterator<Subscriber> iterator = subscribers.iterator();
+        while (iterator.hasNext()) {
+            Subscriber subscriber = iterator.next();
+            if (!subscriber.matches(permission)) continue;
+
+            if (subscriber.permission != null) iterator.remove();
+            subscriber.callback.onPermissionGranted(permission);
+        }
+    }
+
+    void dispatchDenied(String permission, boolean isPermanentlyDenied) {
+        Iterator<Subscriber> iterator = subscribers.iterator();
+        while (iterator.hasNext()) {
+            Subscriber subscriber = iterator.next();
+            if (!subscriber.matches(permission)) continue;
+
+            if (subscriber.permission != null) iterator.remove();
+            subscriber.callback.onPermissionDenied(permission, isPermanentlyDenied);
+        }
+    }
+
+    void dispatchCancelled(String permission) {
+        Iterator<Subscriber> iterator = subscribers.iterator();
+        while (iterator.hasNext()) {
+            Subscriber subscriber = iterator.next();
+            if (!subscriber.matches(permission)) continue;
+
+            if (subscriber.permission != null) iterator.remove();
+            subscriber.callback.onPermissionCancelled(permission);
+        }
+    }
+
+    /**
+     * Deny every single-permission subscriber that is still waiting, each for its own permission
+     */
+    void dispatchDeniedToAll(boolean isPermanentlyDenied) {
+        for (Subscriber subscriber : takeSingleSubscribers()) {
+            subscriber.callback.onPermissionDenied(subscriber.permission, isPermanentlyDenied);
+        }
+    }
+
+    /**
+     * Cancel every single-permission subscriber that is still waiting, each for its own permission
+     */
+    void dispatchCancelledToAll() {
+        for (Subscriber subscriber : takeSingleSubscribers()) {
+            subscriber.callback.onPermissionCancelled(subscriber.permission);
+        }
+    }
+
+    /**
+     * Deliver the aggregated result to every batch subscriber
+     */
+    void dispatchBatchResult(List<String> granted, List<String> denied) {
+        List<Subscriber> batchSubscribers = new ArrayList<>(subscribers);
+        subscribers.clear();
+
+        for (Subscriber subscriber : batchSubscribers) {
+            if (!(subscriber.callback instanceof MultiPermissionCallback)) continue;
+
+            List<String> allGranted = granted;
+            if (subscriber.preGranted != null && !subscriber.preGranted.isEmpty()) {
+                allGranted = new ArrayList<>(subscriber.preGranted);
+                allGranted.addAll(granted);
+            }
+            ((MultiPermissionCallback) subscriber.callback).onPermissionsResult(allGranted, denied);
+        }
+    }
+
+    private List<Subscriber> takeSingleSubscribers() {
+        List<Subscriber> taken = new ArrayList<>(subscribers.size());
+        Iterator<Subscriber> iterator = subscribers.iterator();
+        while (iterator.hasNext()) {
+            Subscriber subscriber = iterator.next();
+            if (subscriber.permission == null) continue;
+
+            iterator.remove();
+            taken.add(subscriber);
+        }
+        return taken;
+    }
+
+    private static final class Subscriber {
+        final PermissionCallback callback;
+        // Null for batch subscribers, which receive every permission
+        final String permission;
+        final List<String> preGranted;
+
+        Subscriber(PermissionCallback callback, String permission, List<String> preGranted) {
+            this.callback = callback;
+            this.permission = permission;
+            this.preGranted = preGranted;
+        }
+
+        boolean matches(String permission) {
+            return this.permission == null || this.permission.equals(permission);
+        }
+    }
+}
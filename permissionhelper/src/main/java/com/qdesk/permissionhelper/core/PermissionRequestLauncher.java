@@ -0,0 +1,21 @@
+package com.qdesk.permissionhelper.core;
+
+import android.app.Activity;
+import androidx.annotation.NonNull;
+import androidx.core.app.ActivityCompat;
+
+/**
+ * Sends a permission request to the system
+ */
+interface PermissionRequestLauncher {
+
+    /**
+     * Classic path: the result comes back through the host's
+     * onRequestPermissionsResult and must be forwarded to
+     * {@link PermissionManager#handlePermissionResult}
+     */
+    PermissionRequestLauncher LEGACY = (activity, request) ->
+            ActivityCompat.requestPermissions(activity, request.permissions, request.requestCode);
+
+    void launch(@NonNull Activity activity, @NonNull PermissionRequest request);
+}
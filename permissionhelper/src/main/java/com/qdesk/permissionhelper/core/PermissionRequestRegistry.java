@@ -0,0 +1,229 @@
+package com.qdesk.permissionhelper.core;
+
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Registry of in-flight permission requests.
+ * Hands out a unique request code per request, coalesces duplicate requests
+ * by key and makes sure only one system prompt is outstanding at a time,
+ * since the framework drops a second concurrent requestPermissions call.
+ * Registries of one screen share a {@link SystemPromptQueue} for that.
+ */
+final class PermissionRequestRegistry {
+
+    /**
+     * Puts a queued request's system prompt on screen once it is its turn
+     */
+    interface Launcher {
+        void launch(PermissionRequest request);
+    }
+
+    private static final int FIRST_REQUEST_CODE = 1001;
+    // ComponentActivity only accepts request codes in the lower 16 bits
+    private static final int MAX_REQUEST_CODE = 0xFFFF;
+
+    private final Map<String, PermissionRequest> requestsByKey = new HashMap<>();
+    private final SparseArray<PermissionRequest> requestsByCode = new SparseArray<>();
+    private final ArrayDeque<PermissionRequest> systemQueue = new ArrayDeque<>();
+    private final SystemPromptQueue promptQueue;
+    private PermissionRequest activeSystemRequest;
+    // Waiting for the user to come back from the app's Settings screen
+    private PermissionRequest settingsRequest;
+    private Launcher launcher;
+    private int nextRequestCode = FIRST_REQUEST_CODE;
+
+    PermissionRequestRegistry() {
+        this(new SystemPromptQueue());
+    }
+
+    PermissionRequestRegistry(SystemPromptQueue promptQueue) {
+        this.promptQueue = promptQueue;
+    }
+
+    /**
+     * Set who launches requests that get their turn while no call into this
+     * registry is in progress, or null while no manager is attached
+     */
+    void setLauncher(Launcher launcher) {
+        this.launcher = launcher;
+    }
+
+    /**
+     * Check if a manager is attached to this registry
+     */
+    boolean hasLauncher() {
+        return launcher != null;
+    }
+
+    /**
+     * Find an in-flight request with the same key
+     */
+    PermissionRequest find(String key) {
+        return requestsByKey.get(key);
+    }
+
+    /**
+     * Find an in-flight request by its request code
+     */
+    PermissionRequest get(int requestCode) {
+        return requestsByCode.get(requestCode);
+    }
+
+    /**
+     * Get the request whose system prompt is currently on screen, or null
+     */
+    PermissionRequest getActiveSystemRequest() {
+        return activeSystemRequest;
+    }
+
+    /**
+     * Register a new request under a fresh request code
+     */
+    PermissionRequest register(String key, String[] permissions, boolean batch) {
+        PermissionRequest request = new PermissionRequest(nextFreeRequestCode(), key, permissions, batch);
+        requestsByKey.put(key, request);
+        requestsByCode.put(request.requestCode, request);
+        return request;
+    }
+
+    /**
+     * Remove a finished request
+     */
+    void remove(PermissionRequest request) {
+        // A newer request may have taken over the key or code of one removed earlier
+        requestsByKey.remove(request.key, request);
+        if (requestsByCode.get(request.requestCode) == request) {
+            requestsByCode.remove(request.requestCode);
+        }
+        systemQueue.remove(request);
+        if (settingsRequest == request) {
+            settingsRequest = null;
+        }
+        if (activeSystemRequest == request) {
+            activeSystemRequest = null;
+            promptQueue.release(this);
+            launchNext();
+        }
+    }
+
+    /**
+     * Release every callback while keeping requests that already reached the
+     * system or Settings, so their results can still be recorded after a configuration
+     * change. Requests still waiting on one of our dialogs are dropped, as the dialog
+     * goes away with its window.
+     */
+    void retainSystemRequests() {
+        Iterator<PermissionRequest> iterator = requestsByKey.values().iterator();
+        while (iterator.hasNext()) {
+            PermissionRequest request = iterator.next();
+            request.clearSubscribers();
+            if (request != activeSystemRequest && request != settingsRequest && !systemQueue.contains(request)) {
+                iterator.remove();
+                requestsByCode.remove(request.requestCode);
+            }
+        }
+    }
+
+    /**
+     * Drop every request and callback
+     */
+    void clear() {
+        requestsByKey.clear();
+        requestsByCode.clear();
+        systemQueue.clear();
+        activeSystemRequest = null;
+        settingsRequest = null;
+        promptQueue.release(this);
+    }
+
+    /**
+     * Remember that the user was sent to Settings for a request, so a recreated
+     * activity can still deliver its result
+     */
+    void awaitSettingsReturn(PermissionRequest request) {
+        settingsRequest = request;
+    }
+
+    /**
+     * Get the request waiting for the user to come back from Settings, or null
+     */
+    PermissionRequest getSettingsRequest() {
+        return settingsRequest;
+    }
+
+    /**
+     * Queue a request for the system prompt
+     * @return The request the caller should launch right away, or null if
+     *         a prompt of this or another registry of the screen is up
+     */
+    PermissionRequest enqueueSystemRequest(PermissionRequest request) {
+        if (activeSystemRequest != request && !systemQueue.contains(request)) {
+            systemQueue.add(request);
+        }
+        return takeTurn();
+    }
+
+    /**
+     * Mark the system prompt of a request as answered and let the next registry in line take its turn
+     * @return The next queued request of this registry to launch, or null
+     */
+    PermissionRequest completeSystemRequest(PermissionRequest request) {
+        if (activeSystemRequest != request) return null;
+
+        activeSystemRequest = null;
+        promptQueue.release(this);
+        return takeTurn();
+    }
+
+    /**
+     * Start the next queued request if the prompt slot became free while no manager was attached
+     * @return The request to launch, or null
+     */
+    PermissionRequest resumeSystemQueue() {
+        return takeTurn();
+    }
+
+    /**
+     * Called by the prompt queue when it is this registry's turn
+     * @return false if there is nothing to launch, passing the turn on
+     */
+    boolean onPromptSlotAvailable() {
+        if (launcher == null || activeSystemRequest != null || systemQueue.isEmpty()) return false;
+
+        activeSystemRequest = systemQueue.poll();
+        launcher.launch(activeSystemRequest);
+        return true;
+    }
+
+    private PermissionRequest takeTurn() {
+        if (activeSystemRequest != null || systemQueue.isEmpty() || !promptQueue.acquire(this)) return null;
+
+        activeSystemRequest = systemQueue.poll();
+        return activeSystemRequest;
+    }
+
+    private void launchNext() {
+        if (launcher == null) return;
+
+        PermissionRequest next = takeTurn();
+        if (next != null) launcher.launch(next);
+    }
+
+    SystemPromptQueue getPromptQueue() {
+        return promptQueue;
+    }
+
+    private int nextFreeRequestCode() {
+        int requestCode = nextRequestCode;
+        while (requestsByCode.get(requestCode) != null) {
+            requestCode = requestCode >= MAX_REQUEST_CODE ? FIRST_REQUEST_CODE : requestCode + 1;
+        }
+        nextRequestCode = requestCode >= MAX_REQUEST_CODE ? FIRST_REQUEST_CODE : requestCode + 1;
+        return requestCode;
+    }
+}
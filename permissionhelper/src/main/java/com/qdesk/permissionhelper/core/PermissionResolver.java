@@ -0,0 +1,83 @@
+package com.qdesk.permissionhelper.core;
+
+import android.Manifest;
+import android.os.Build;
+
+/**
+ * Maps a permission name to the permissions that actually have to be granted
+ * on a given API level. Permissions that no longer exist or mean nothing there
+ * resolve to nothing, and renamed ones to their replacements.
+ * <p>
+ * A name that resolves to several permissions is granted only once all of them are.
+ * Request a {@link Capability} instead when only one of them is needed, e.g.
+ * {@link Capability#READ_IMAGES} rather than {@code READ_EXTERNAL_STORAGE} on Android 13+.
+ */
+final class PermissionResolver {
+
+    private static final String[] NONE = new String[0];
+
+    private PermissionResolver() {
+    }
+
+    /**
+     * Resolve a permission for the running device
+     */
+    static String[] resolve(String permission) {
+        return resolve(permission, Build.VERSION.SDK_INT);
+    }
+
+    /**
+     * Resolve a permission for an API level
+     * @return The concrete permissions to check and request; empty when nothing is needed
+     */
+    static String[] resolve(String permission, int sdkInt) {
+        switch (permission) {
+            case Manifest.permission.WRITE_EXTERNAL_STORAGE:
+                // Scoped storage: grants nothing from Android 11 on
+                return sdkInt >= Build.VERSION_CODES.R ? NONE : new String[]{permission};
+            case Manifest.permission.READ_EXTERNAL_STORAGE:
+                if (sdkInt < Build.VERSION_CODES.TIRAMISU) return new String[]{permission};
+                // Every kind of media the old permission covered
+                return new String[]{
+                        Manifest.permission.READ_MEDIA_IMAGES,
+                        Manifest.permission.READ_MEDIA_VIDEO,
+                        Manifest.permission.READ_MEDIA_AUDIO};
+            case Manifest.permission.READ_MEDIA_IMAGES:
+            case Manifest.permission.READ_MEDIA_VIDEO:
+            case Manifest.permission.READ_MEDIA_AUDIO:
+                return sdkInt >= Build.VERSION_CODES.TIRAMISU
+                        ? new String[]{permission}
+                        : new String[]{Manifest.permission.READ_EXTERNAL_STORAGE};
+            case Manifest.permission.POST_NOTIFICATIONS:
+                // Notifications are allowed by default before Android 13
+                return sdkInt >= Build.VERSION_CODES.TIRAMISU ? new String[]{permission} : NONE;
+            case Manifest.permission.BLUETOOTH_SCAN:
+                if (sdkInt >= Build.VERSION_CODES.S) return new String[]{permission};
+                // Scan results needed location access before Android 12, as in Capability.BLUETOOTH_SCAN
+                return new String[]{sdkInt >= Build.VERSION_CODES.Q
+                        ? Manifest.permission.ACCESS_FINE_LOCATION
+                        : Manifest.permission.ACCESS_COARSE_LOCATION};
+            case Manifest.permission.BLUETOOTH_CONNECT:
+            case Manifest.permission.BLUETOOTH_ADVERTISE:
+                // Covered by the install-time BLUETOOTH/BLUETOOTH_ADMIN permissions before Android 12
+                return sdkInt >= Build.VERSION_CODES.S ? new String[]{permission} : NONE;
+            case Manifest.permission.ACTIVITY_RECOGNITION:
+                // Not a runtime permission before Android 10
+                return sdkInt >= Build.VERSION_CODES.Q ? new String[]{permission} : NONE;
+            case Manifest.permission.READ_PHONE_NUMBERS:
+                return sdkInt >= Build.VERSION_CODES.O
+                        ? new String[]{permission}
+                        : new String[]{Manifest.permission.READ_PHONE_STATE};
+            default:
+                return new String[]{permission};
+        }
+    }
+
+    /**
+     * Check if a permission means the same on the running device, i.e. resolves to itself alone
+     */
+    static boolean isUnchanged(String permission) {
+        String[] resolved = resolve(permission);
+        return resolved.length == 1 && resolved[0].equals(permission);
+    }
+}
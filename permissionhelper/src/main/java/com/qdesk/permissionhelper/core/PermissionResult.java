@@ -0,0 +1,50 @@
+package com.qdesk.permissionhelper.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Final outcome of a permission request, as delivered by the future-returning API
+ */
+public final class PermissionResult {
+
+    public enum Status {
+        GRANTED,
+        DENIED,
+        PERMANENTLY_DENIED,
+        CANCELLED,
+        /** Not declared in the app's manifest, so the system was never asked */
+        NOT_DECLARED
+    }
+
+    private final String permission;
+    private final Status status;
+
+    PermissionResult(@NonNull String permission, @NonNull Status status) {
+        this.permission = permission;
+        this.status = status;
+    }
+
+    static PermissionResult denied(String permission, boolean isPermanentlyDenied) {
+        return new PermissionResult(permission, isPermanentlyDenied ? Status.PERMANENTLY_DENIED : Status.DENIED);
+    }
+
+    @NonNull
+    public String getPermission() {
+        return permission;
+    }
+
+    @NonNull
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isGranted() {
+        return status == Status.GRANTED;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "PermissionResult{" + permission + "=" + status + "}";
+    }
+}
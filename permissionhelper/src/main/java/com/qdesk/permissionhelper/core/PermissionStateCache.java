@@ -0,0 +1,244 @@
+package com.qdesk.permissionhelper.core;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LiveData;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide in-memory snapshot of permission states.
+ * Answers granted/denied without a binder call and only re-queries the system
+ * when the state may have changed: whenever an activity resumes (the user may
+ * have come back from Settings) or when a permission result is recorded.
+ * <p>
+ * Observed permissions are re-checked at those same points, and their listeners
+ * are told about actual grant/revoke transitions on the main thread.
+ */
+public final class PermissionStateCache {
+
+    /**
+     * Notified on the main thread when an observed permission changes state
+     */
+    public interface OnPermissionStateChangedListener {
+        void onPermissionStateChanged(@NonNull String permission, boolean granted);
+    }
+
+    private static volatile PermissionStateCache instance;
+
+    private final Context appContext;
+    private final ConcurrentHashMap<String, Boolean> states = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final ConcurrentHashMap<String, List<OnPermissionStateChangedListener>> listeners = new ConcurrentHashMap<>();
+    // Last state reported to the listeners of each observed permission
+    private final ConcurrentHashMap<String, Boolean> observedStates = new ConcurrentHashMap<>();
+
+    private PermissionStateCache(Context appContext) {
+        this.appContext = appContext;
+        if (appContext instanceof Application) {
+            ((Application) appContext).registerActivityLifecycleCallbacks(new ResumeInvalidator());
+        }
+    }
+
+    /**
+     * Get the shared cache for this process
+     */
+    @NonNull
+    public static PermissionStateCache getInstance(@NonNull Context context) {
+        PermissionStateCache cache = instance;
+        if (cache == null) {
+            synchronized (PermissionStateCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    cache = new PermissionStateCache(context.getApplicationContext());
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Check if a permission is granted, querying the system only on a cache miss
+     */
+    public boolean isGranted(@NonNull String permission) {
+        Boolean granted = states.get(permission);
+        if (granted != null) {
+            hitCount.incrementAndGet();
+            return granted;
+        }
+
+        missCount.incrementAndGet();
+        boolean isGranted = querySystem(permission);
+        states.put(permission, isGranted);
+        return isGranted;
+    }
+
+    /**
+     * Record a state that is known to be current, e.g. from a permission result
+     */
+    void put(@NonNull String permission, boolean granted) {
+        states.put(permission, granted);
+        notifyIfChanged(permission, granted);
+    }
+
+    /**
+     * Observe grants and revocations of a permission, including changes made in
+     * Settings or by the system's auto-reset of unused permissions. Only actual
+     * transitions are reported, not the current state; read that with {@link #isGranted}.
+     */
+    public void addListener(@NonNull String permission, @NonNull OnPermissionStateChangedListener listener) {
+        synchronized (listeners) {
+            List<OnPermissionStateChangedListener> permissionListeners = listeners.get(permission);
+            if (permissionListeners == null) {
+                permissionListeners = new CopyOnWriteArrayList<>();
+                listeners.put(permission, permissionListeners);
+                observedStates.put(permission, isGranted(permission));
+            }
+            if (!permissionListeners.contains(listener)) {
+                permissionListeners.add(listener);
+            }
+        }
+    }
+
+    public void removeListener(@NonNull String permission, @NonNull OnPermissionStateChangedListener listener) {
+        synchronized (listeners) {
+            List<OnPermissionStateChangedListener> permissionListeners = listeners.get(permission);
+            if (permissionListeners == null) return;
+
+            permissionListeners.remove(listener);
+            if (permissionListeners.isEmpty()) {
+                listeners.remove(permission);
+                observedStates.remove(permission);
+            }
+        }
+    }
+
+    /**
+     * Observe a permission as LiveData: the current state while active, then every transition
+     */
+    @NonNull
+    public LiveData<Boolean> observe(@NonNull String permission) {
+        return new PermissionStateLiveData(this, permission);
+    }
+
+    /**
+     * Drop the cached state of one permission
+     */
+    public void invalidate(@NonNull String permission) {
+        states.remove(permission);
+    }
+
+    /**
+     * Drop every cached state
+     */
+    public void invalidateAll() {
+        states.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public void resetStats() {
+        hitCount.set(0);
+        missCount.set(0);
+    }
+
+    /**
+     * Query the permissions a name stands for on this Android version; one that is
+     * obsolete there counts as granted without asking the system
+     */
+    private boolean querySystem(String permission) {
+        String[] resolved = PermissionResolver.resolve(permission);
+        if (resolved.length == 1 && resolved[0].equals(permission)) {
+            return checkSelfPermission(permission);
+        }
+
+        DeclaredPermissions declared = DeclaredPermissions.getInstance(appContext);
+        boolean anyDeclared = false;
+        for (String concrete : resolved) {
+            if (!declared.isDeclared(concrete)) continue;
+
+            anyDeclared = true;
+            if (!checkSelfPermission(concrete)) return false;
+        }
+        return resolved.length == 0 || anyDeclared;
+    }
+
+    private boolean checkSelfPermission(String permission) {
+        return ContextCompat.checkSelfPermission(appContext, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Re-query only the observed permissions and report their transitions
+     */
+    private void recheckObserved() {
+        for (String permission : listeners.keySet()) {
+            boolean granted = querySystem(permission);
+            states.put(permission, granted);
+            notifyIfChanged(permission, granted);
+        }
+    }
+
+    private void notifyIfChanged(String permission, boolean granted) {
+        List<OnPermissionStateChangedListener> permissionListeners = listeners.get(permission);
+        if (permissionListeners == null) return;
+
+        Boolean previous = observedStates.replace(permission, granted);
+        if (previous == null || previous == granted) return;
+
+        for (OnPermissionStateChangedListener listener : permissionListeners) {
+            listener.onPermissionStateChanged(permission, granted);
+        }
+    }
+
+    /**
+     * Invalidates the snapshot whenever any activity resumes
+     */
+    private final class ResumeInvalidator implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+            invalidateAll();
+            recheckObserved();
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    }
+}
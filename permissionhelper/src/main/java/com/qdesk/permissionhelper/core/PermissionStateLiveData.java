@@ -0,0 +1,42 @@
+package com.qdesk.permissionhelper.core;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+
+/**
+ * LiveData view of one permission's state, listening to the cache only while active
+ */
+final class PermissionStateLiveData extends LiveData<Boolean>
+        implements PermissionStateCache.OnPermissionStateChangedListener {
+
+    private final PermissionStateCache stateCache;
+    private final String permission;
+
+    PermissionStateLiveData(PermissionStateCache stateCache, String permission) {
+        this.stateCache = stateCache;
+        this.permission = permission;
+    }
+
+    @Override
+    protected void onActive() {
+        stateCache.addListener(permission, this);
+        publish(stateCache.isGranted(permission));
+    }
+
+    @Override
+    protected void onInactive() {
+        stateCache.removeListener(permission, this);
+    }
+
+    @Override
+    public void onPermissionStateChanged(@NonNull String permission, boolean granted) {
+        publish(granted);
+    }
+
+    private void publish(boolean granted) {
+        Boolean current = getValue();
+        if (current == null || current != granted) {
+            setValue(granted);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.qdesk.permissionhelper.core;
+
+/**
+ * Recorded outcomes of one permission on this install, as seen by a {@link RationalePolicy}
+ */
+public final class PermissionStats {
+
+    private final int requestCount;
+    private final int denyCount;
+    private final int denyStreak;
+    private final int rationaleShownCount;
+    private final int grantedAfterRationaleCount;
+
+    PermissionStats(int requestCount, int denyCount, int denyStreak,
+                    int rationaleShownCount, int grantedAfterRationaleCount) {
+        this.requestCount = requestCount;
+        this.denyCount = denyCount;
+        this.denyStreak = denyStreak;
+        this.rationaleShownCount = rationaleShownCount;
+        this.grantedAfterRationaleCount = grantedAfterRationaleCount;
+    }
+
+    /**
+     * Number of system prompts requested
+     */
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    public int getDenyCount() {
+        return denyCount;
+    }
+
+    /**
+     * Number of denials since the permission was last granted
+     */
+    public int getDenyStreak() {
+        return denyStreak;
+    }
+
+    /**
+     * Number of rationale dialogs shown, decayed over time
+     */
+    public int getRationaleShownCount() {
+        return rationaleShownCount;
+    }
+
+    /**
+     * Number of rationale dialogs followed by a grant, decayed together with the shown count
+     */
+    public int getGrantedAfterRationaleCount() {
+        return grantedAfterRationaleCount;
+    }
+
+    /**
+     * Share of rationale dialogs that ended in a grant
+     * @return A value between 0 and 1, or -1 if no rationale was shown yet
+     */
+    public float getRationaleGrantRate() {
+        if (rationaleShownCount == 0) return -1f;
+        return (float) grantedAfterRationaleCount / rationaleShownCount;
+    }
+}
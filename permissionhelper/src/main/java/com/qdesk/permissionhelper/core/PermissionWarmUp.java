@@ -0,0 +1,34 @@
+package com.qdesk.permissionhelper.core;
+
+/**
+ * Speculative preparation of the feature behind a permission, run while the
+ * user is still looking at the permission prompt.
+ * Register one with {@link PermissionManager#registerWarmUp(String, PermissionWarmUp)}.
+ * <p>
+ * {@link #prepare()} runs before the permission is granted, so it may only do
+ * work that doesn't need it: loading native libraries, building pipelines,
+ * allocating buffers, resolving providers. Exactly one of {@link #commit()} and
+ * {@link #cancel()} follows each prepare, on the main thread. If the result
+ * arrives before prepare got a thread, prepare is skipped and neither is called.
+ */
+public interface PermissionWarmUp {
+
+    /**
+     * Prepare the feature; runs on a background thread.
+     * May be interrupted when the user denies the permission meanwhile.
+     * @throws Exception If preparation failed, {@link #cancel()} is called instead of commit
+     */
+    void prepare() throws Exception;
+
+    /**
+     * The permission was granted and {@link #prepare()} completed: make the prepared
+     * resources live. Called right before the granted callback when possible.
+     */
+    void commit();
+
+    /**
+     * The permission was denied, the request was dropped or preparation failed:
+     * release whatever {@link #prepare()} allocated. Called after prepare has returned.
+     */
+    void cancel();
+}
@@ -0,0 +1,69 @@
+package com.qdesk.permissionhelper.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Decides, per permission, whether to explain, ask, retry, send the user to
+ * Settings or give up. Install one with
+ * {@link PermissionManager#setRationalePolicy(RationalePolicy)}.
+ * Called on the main thread for every undecided step, so keep it to in-memory lookups.
+ */
+public interface RationalePolicy {
+
+    enum Decision {
+        /** Show the system prompt */
+        REQUEST,
+        /** Explain first, then show the system prompt if the user agrees */
+        RATIONALE,
+        /** Offer to open the app's settings page */
+        SETTINGS,
+        /** Report the permission as denied without another prompt */
+        DENY
+    }
+
+    /**
+     * The library's original flow: rationale when the system asks for one,
+     * one automatic retry, and Settings once the system stops prompting
+     */
+    RationalePolicy DEFAULT = new RationalePolicy() {
+        private static final int MAX_RETRY_COUNT = 1;
+
+        @NonNull
+        @Override
+        public Decision onRequest(@NonNull String permission, @NonNull PermissionStats stats,
+                                  boolean shouldShowRationale) {
+            return shouldShowRationale ? Decision.RATIONALE : Decision.REQUEST;
+        }
+
+        @NonNull
+        @Override
+        public Decision onDenied(@NonNull String permission, @NonNull PermissionStats stats,
+                                 boolean shouldShowRationale, int retryCount) {
+            // The streak already includes this denial, so > 1 means it was denied in an earlier session too
+            boolean deniedBefore = retryCount > 0 || stats.getDenyStreak() > 1;
+            if (!shouldShowRationale && deniedBefore) return Decision.SETTINGS;
+            return retryCount < MAX_RETRY_COUNT ? Decision.RATIONALE : Decision.DENY;
+        }
+    };
+
+    /**
+     * Decide how to start a request for a permission that isn't granted.
+     * Prefer the system prompt over Settings here: a recorded deny streak may be stale,
+     * e.g. after the user or the system reset the permission or the history was restored
+     * from a backup, and a permanently denied request returns at once without any UI.
+     * @param stats Recorded history of the permission
+     * @param shouldShowRationale Whether the system recommends a rationale
+     */
+    @NonNull
+    Decision onRequest(@NonNull String permission, @NonNull PermissionStats stats, boolean shouldShowRationale);
+
+    /**
+     * Decide what to do after the user denied the system prompt
+     * @param stats Recorded history of the permission, including this denial
+     * @param shouldShowRationale Whether the system would still prompt
+     * @param retryCount Number of retries already made in this session
+     */
+    @NonNull
+    Decision onDenied(@NonNull String permission, @NonNull PermissionStats stats,
+                      boolean shouldShowRationale, int retryCount);
+}
@@ -0,0 +1,68 @@
+package com.qdesk.permissionhelper.core;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStoreOwner;
+
+/**
+ * Keeps the request registry of a screen alive across configuration changes
+ */
+final class RetainedRequestRegistry extends ViewModel {
+
+    /**
+     * The system prompt queue shared by every registry of one activity
+     */
+    static final class SharedPromptQueue extends ViewModel {
+        final SystemPromptQueue queue = new SystemPromptQueue();
+    }
+
+    private static final ViewModelProvider.Factory QUEUE_FACTORY = new ViewModelProvider.Factory() {
+        @NonNull
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+            return (T) new SharedPromptQueue();
+        }
+    };
+
+    final PermissionRequestRegistry registry;
+
+    private RetainedRequestRegistry(SystemPromptQueue promptQueue) {
+        this.registry = new PermissionRequestRegistry(promptQueue);
+    }
+
+    /**
+     * Get the registry retained by an activity for one result key
+     */
+    static PermissionRequestRegistry of(@NonNull FragmentActivity activity, @NonNull String resultKey) {
+        return of(activity, activity, RetainedRequestRegistry.class.getName() + ":" + resultKey);
+    }
+
+    /**
+     * Get the registry retained by a fragment, sharing its activity's prompt queue
+     */
+    static PermissionRequestRegistry of(@NonNull Fragment fragment) {
+        return of(fragment, fragment.requireActivity(), RetainedRequestRegistry.class.getName());
+    }
+
+    private static PermissionRequestRegistry of(ViewModelStoreOwner owner, FragmentActivity host, String key) {
+        SystemPromptQueue promptQueue = new ViewModelProvider(host, QUEUE_FACTORY).get(SharedPromptQueue.class).queue;
+        ViewModelProvider.Factory factory = new ViewModelProvider.Factory() {
+            @NonNull
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+                return (T) new RetainedRequestRegistry(promptQueue);
+            }
+        };
+        return new ViewModelProvider(owner, factory).get(key, RetainedRequestRegistry.class).registry;
+    }
+
+    @Override
+    protected void onCleared() {
+        registry.clear();
+    }
+}
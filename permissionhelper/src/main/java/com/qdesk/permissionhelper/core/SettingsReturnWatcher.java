@@ -0,0 +1,102 @@
+package com.qdesk.permissionhelper.core;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Waits for one activity to come back to the foreground after the app
+ * details screen was opened from it, then reports the return exactly once.
+ * Unregisters itself when the activity resumes or is destroyed.
+ * A recreated activity is watched by a new watcher that already counts as having left.
+ */
+final class SettingsReturnWatcher implements Application.ActivityLifecycleCallbacks {
+
+    interface Listener {
+        /**
+         * The activity resumed after leaving for Settings
+         */
+        void onReturnedFromSettings();
+
+        /**
+         * The activity was destroyed before the user came back
+         * @param isChangingConfigurations It is being recreated, e.g. rotated while in Settings
+         */
+        void onSettingsAbandoned(boolean isChangingConfigurations);
+    }
+
+    private final Application application;
+    private final Activity activity;
+    private final Listener listener;
+    private boolean left;
+    private boolean finished;
+
+    /**
+     * @param hasLeft The user already left for Settings, so the next resume is the return
+     */
+    SettingsReturnWatcher(@NonNull Activity activity, boolean hasLeft, @NonNull Listener listener) {
+        this.application = activity.getApplication();
+        this.activity = activity;
+        this.left = hasLeft;
+        this.listener = listener;
+    }
+
+    /**
+     * Start watching; call right before starting the Settings activity
+     */
+    void start() {
+        application.registerActivityLifecycleCallbacks(this);
+    }
+
+    /**
+     * Stop watching without reporting anything
+     */
+    void cancel() {
+        if (finished) return;
+
+        finished = true;
+        application.unregisterActivityLifecycleCallbacks(this);
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+        if (activity == this.activity) {
+            left = true;
+        }
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+        // Ignore a resume that happens before Settings actually covered the activity
+        if (activity != this.activity || !left || finished) return;
+
+        cancel();
+        listener.onReturnedFromSettings();
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+        if (activity != this.activity || finished) return;
+
+        cancel();
+        listener.onSettingsAbandoned(activity.isChangingConfigurations());
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+    }
+}
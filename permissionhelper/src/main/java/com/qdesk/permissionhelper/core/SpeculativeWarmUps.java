@@ -0,0 +1,172 @@
+package com.qdesk.permissionhelper.core;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the registered {@link PermissionWarmUp} of a permission while its prompt
+ * is on screen and settles it once the result is known.
+ * All methods except the background preparation itself run on the main thread.
+ */
+final class SpeculativeWarmUps {
+
+    private static volatile ExecutorService sharedExecutor;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, PermissionWarmUp> warmUps = new HashMap<>();
+    private final Map<String, Run> runs = new HashMap<>();
+    private Executor executor;
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    void register(String permission, PermissionWarmUp warmUp) {
+        warmUps.put(permission, warmUp);
+    }
+
+    void unregister(String permission) {
+        warmUps.remove(permission);
+        cancel(permission);
+    }
+
+    /**
+     * Start preparing for a permission, unless it is already running or nothing is registered
+     */
+    void start(String permission) {
+        PermissionWarmUp warmUp = warmUps.get(permission);
+        if (warmUp == null || runs.containsKey(permission)) return;
+
+        Run run = new Run(warmUp);
+        runs.put(permission, run);
+        Executor runExecutor = executor != null ? executor : getSharedExecutor();
+        runExecutor.execute(run);
+    }
+
+    /**
+     * The permission was granted: commit as soon as preparation is done
+     */
+    void commit(String permission) {
+        Run run = runs.remove(permission);
+        if (run != null) run.finish(true);
+    }
+
+    /**
+     * The permission was denied or the request dropped: cancel the preparation
+     */
+    void cancel(String permission) {
+        Run run = runs.remove(permission);
+        if (run != null) run.finish(false);
+    }
+
+    void cancelAll() {
+        for (String permission : new ArrayList<>(runs.keySet())) {
+            cancel(permission);
+        }
+    }
+
+    private static ExecutorService getSharedExecutor() {
+        ExecutorService service = sharedExecutor;
+        if (service == null) {
+            synchronized (SpeculativeWarmUps.class) {
+                service = sharedExecutor;
+                if (service == null) {
+                    service = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(() -> {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }, "PermissionWarmUp");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    sharedExecutor = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    /**
+     * One preparation and its outcome
+     */
+    private final class Run implements Runnable {
+        private static final int PENDING = 0;
+        private static final int PREPARING = 1;
+        private static final int PREPARED = 2;
+        private static final int FAILED = 3;
+
+        private final PermissionWarmUp warmUp;
+        // Guarded by this
+        private int state = PENDING;
+        private Boolean granted;
+        private Thread runner;
+
+        Run(PermissionWarmUp warmUp) {
+            this.warmUp = warmUp;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                // Settled before it got a thread, prepare is skipped altogether
+                if (granted != null) return;
+                state = PREPARING;
+                runner = Thread.currentThread();
+            }
+
+            boolean prepared;
+            try {
+                warmUp.prepare();
+                prepared = true;
+            } catch (Exception e) {
+                prepared = false;
+            }
+
+            boolean settled;
+            synchronized (this) {
+                runner = null;
+                // Don't leak our interrupt into the pool thread
+                Thread.interrupted();
+                state = prepared ? PREPARED : FAILED;
+                settled = granted != null;
+            }
+            if (settled) {
+                mainHandler.post(this::deliver);
+            }
+        }
+
+        /**
+         * Record the outcome; delivered now if preparation isn't running, otherwise when it returns
+         */
+        void finish(boolean isGranted) {
+            synchronized (this) {
+                if (granted != null) return;
+                granted = isGranted;
+                if (state == PREPARING) {
+                    if (!isGranted) runner.interrupt();
+                    return;
+                }
+            }
+            deliver();
+        }
+
+        private void deliver() {
+            // Never got a thread: prepare didn't run, so there is nothing to commit or release
+            if (state == PENDING) return;
+
+            if (granted && state == PREPARED) {
+                warmUp.commit();
+            } else {
+                warmUp.cancel();
+            }
+        }
+    }
+}
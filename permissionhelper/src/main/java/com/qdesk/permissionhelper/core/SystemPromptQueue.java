@@ -0,0 +1,49 @@
+package com.qdesk.permissionhelper.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Serializes system permission prompts across every request registry of one
+ * host activity, e.g. the activity's and each fragment's, since the framework
+ * drops a second concurrent requestPermissions call. Registries take turns in
+ * arrival order; each keeps its own requests and subscribers.
+ * Main thread only.
+ */
+final class SystemPromptQueue {
+
+    private final ArrayDeque<PermissionRequestRegistry> waiting = new ArrayDeque<>();
+    private PermissionRequestRegistry holder;
+
+    /**
+     * Take the prompt slot, or line up for it
+     * @return true if the registry holds the slot and may launch now
+     */
+    boolean acquire(PermissionRequestRegistry registry) {
+        if (holder == null || holder == registry) {
+            holder = registry;
+            return true;
+        }
+        if (!waiting.contains(registry)) {
+            waiting.add(registry);
+        }
+        return false;
+    }
+
+    /**
+     * Give up the slot, or the place in line, and hand the slot to the next
+     * registry that has a request ready to launch
+     */
+    void release(PermissionRequestRegistry registry) {
+        waiting.remove(registry);
+        if (holder != registry) return;
+
+        holder = null;
+        PermissionRequestRegistry next;
+        while (holder == null && (next = waiting.poll()) != null) {
+            holder = next;
+            if (!next.onPromptSlotAvailable()) {
+                holder = null;
+            }
+        }
+    }
+}
@@ -10,8 +10,10 @@ import com.qdesk.permissionhelper.R;
 import android.Manifest;
 import android.widget.Button;
 import android.widget.Toast;
-import androidx.annotation.NonNull;
-import com.qdesk.permissionhelper.core.PermissionCallback;
+import com.qdesk.permissionhelper.annotation.NeedsPermission;
+import com.qdesk.permissionhelper.annotation.OnPermanentlyDenied;
+import com.qdesk.permissionhelper.annotation.OnPermissionDenied;
+import com.qdesk.permissionhelper.core.LifecyclePermissionManager;
 import com.qdesk.permissionhelper.core.PermissionManager;
 
 /**
@@ -26,8 +28,8 @@ public class SampleActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_sample);
 
-        // Initialize Permission Manager
-        permissionManager = new PermissionManager(this);
+        // Initialize Permission Manager (results are delivered without onRequestPermissionsResult)
+        permissionManager = new LifecyclePermissionManager(this);
 
         setupButtons();
     }
@@ -37,85 +39,62 @@ public class SampleActivity extends AppCompatActivity {
         Button storageButton = findViewById(R.id.btn_storage_permission);
         Button locationButton = findViewById(R.id.btn_location_permission);
 
-        cameraButton.setOnClickListener(v -> requestCameraPermission());
-        storageButton.setOnClickListener(v -> requestStoragePermission());
-        locationButton.setOnClickListener(v -> requestLocationPermission());
+        // SampleActivityPermissionsDispatcher is generated from the annotations below
+        cameraButton.setOnClickListener(v ->
+                SampleActivityPermissionsDispatcher.openCameraWithPermissionCheck(this, permissionManager));
+        storageButton.setOnClickListener(v ->
+                SampleActivityPermissionsDispatcher.openStorageWithPermissionCheck(this, permissionManager));
+        locationButton.setOnClickListener(v ->
+                SampleActivityPermissionsDispatcher.openLocationWithPermissionCheck(this, permissionManager));
     }
 
-    private void requestCameraPermission() {
-        permissionManager.requestPermission(Manifest.permission.CAMERA, new PermissionCallback() {
-            @Override
-            public void onPermissionGranted(String permission) {
-                showToast("Camera permission granted! 📸");
-                // Proceed with camera functionality
-            }
-
-            @Override
-            public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
-                if (isPermanentlyDenied) {
-                    showToast("Camera permission permanently denied. Please enable in Settings.");
-                } else {
-                    showToast("Camera permission denied.");
-                }
-            }
-
-            @Override
-            public void onPermissionCancelled(String permission) {
-                showToast("Camera permission request cancelled.");
-            }
-        });
+    @NeedsPermission(Manifest.permission.CAMERA)
+    void openCamera() {
+        showToast("Camera permission granted! 📸");
+        // Proceed with camera functionality
     }
 
-    private void requestStoragePermission() {
-        permissionManager.requestPermission(Manifest.permission.WRITE_EXTERNAL_STORAGE, new PermissionCallback() {
-            @Override
-            public void onPermissionGranted(String permission) {
-                showToast("Storage permission granted! 💾");
-            }
-
-            @Override
-            public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
-                showToast(isPermanentlyDenied ?
-                        "Storage permission permanently denied." :
-                        "Storage permission denied.");
-            }
-
-            @Override
-            public void onPermissionCancelled(String permission) {
-                showToast("Storage permission request cancelled.");
-            }
-        });
+    @OnPermissionDenied(Manifest.permission.CAMERA)
+    void onCameraDenied() {
+        showToast("Camera permission denied.");
     }
 
-    private void requestLocationPermission() {
-        permissionManager.requestPermission(Manifest.permission.ACCESS_FINE_LOCATION, new PermissionCallback() {
-            @Override
-            public void onPermissionGranted(String permission) {
-                showToast("Location permission granted! 📍");
-            }
-
-            @Override
-            public void onPermissionDenied(String permission, boolean isPermanentlyDenied) {
-                showToast(isPermanentlyDenied ?
-                        "Location permission permanently denied." :
-                        "Location permission denied.");
-            }
-
-            @Override
-            public void onPermissionCancelled(String permission) {
-                showToast("Location permission request cancelled.");
-            }
-        });
+    @OnPermanentlyDenied(Manifest.permission.CAMERA)
+    void onCameraPermanentlyDenied() {
+        showToast("Camera permission permanently denied. Please enable in Settings.");
     }
 
-    @Override
-    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
-        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
-        // Important: Forward the result to PermissionManager
-        permissionManager.handlePermissionResult(requestCode, permissions, grantResults);
+    @NeedsPermission(Manifest.permission.WRITE_EXTERNAL_STORAGE)
+    void openStorage() {
+        showToast("Storage permission granted! 💾");
+    }
+
+    @OnPermissionDenied(Manifest.permission.WRITE_EXTERNAL_STORAGE)
+    void onStorageDenied() {
+        showToast("Storage permission denied.");
+    }
+
+    @OnPermanentlyDenied(Manifest.permission.WRITE_EXTERNAL_STORAGE)
+    void onStoragePermanentlyDenied() {
+        showToast("Storage permission permanently denied.");
+    }
+
+    @NeedsPermission(Manifest.permission.ACCESS_FINE_LOCATION)
+    void openLocation() {
+        showToast("Location permission granted! 📍");
+    }
+
+    @OnPermissionDenied(Manifest.permission.ACCESS_FINE_LOCATION)
+    void onLocationDenied() {
+        showToast("Location permission denied.");
+    }
+
+    @OnPermanentlyDenied(Manifest.permission.ACCESS_FINE_LOCATION)
+    void onLocationPermanentlyDenied() {
+        showToast("Location permission permanently denied.");
     }
 
     private void showToast(String message) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
-}
\ No newline at end of file
+}
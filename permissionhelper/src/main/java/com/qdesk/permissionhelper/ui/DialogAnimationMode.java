@@ -0,0 +1,19 @@
+package com.qdesk.permissionhelper.ui;
+
+/**
+ * How the rationale dialog and the settings prompt animate on show and dismiss
+ */
+public enum DialogAnimationMode {
+    /**
+     * Legacy view animations from res/anim, run and invalidated on the UI thread.
+     * Show only, ignoring the system animator duration scale.
+     */
+    VIEW_ANIMATION,
+
+    /**
+     * Property animators on a hardware layer: the content is rendered once and each
+     * frame only updates render properties, which the RenderThread composites.
+     * Animates both show and dismiss and honors the system animator duration scale.
+     */
+    PROPERTY_ANIMATOR
+}
@@ -0,0 +1,123 @@
+package com.qdesk.permissionhelper.ui;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Frame timings of one dialog show or dismiss transition, from the window's FrameMetrics
+ */
+public final class DialogFrameStats {
+
+    /**
+     * Notified on the main thread shortly after a transition has finished
+     */
+    public interface OnFrameStatsListener {
+        void onFrameStats(@NonNull DialogFrameStats stats);
+    }
+
+    public enum Kind {
+        RATIONALE,
+        SETTINGS_PROMPT
+    }
+
+    public enum Transition {
+        SHOW,
+        DISMISS
+    }
+
+    private final Kind kind;
+    private final Transition transition;
+    private final DialogAnimationMode animationMode;
+    private final float durationScale;
+    private final long frameIntervalNanos;
+    private final int frameCount;
+    private final int jankyFrames;
+    private final int droppedFrames;
+    private final long totalFrameNanos;
+    private final long maxFrameNanos;
+
+    DialogFrameStats(Kind kind, Transition transition, DialogAnimationMode animationMode,
+                     float durationScale, long frameIntervalNanos, int frameCount, int jankyFrames,
+                     int droppedFrames, long totalFrameNanos, long maxFrameNanos) {
+        this.kind = kind;
+        this.transition = transition;
+        this.animationMode = animationMode;
+        this.durationScale = durationScale;
+        this.frameIntervalNanos = frameIntervalNanos;
+        this.frameCount = frameCount;
+        this.jankyFrames = jankyFrames;
+        this.droppedFrames = droppedFrames;
+        this.totalFrameNanos = totalFrameNanos;
+        this.maxFrameNanos = maxFrameNanos;
+    }
+
+    @NonNull
+    public Kind getKind() {
+        return kind;
+    }
+
+    @NonNull
+    public Transition getTransition() {
+        return transition;
+    }
+
+    @NonNull
+    public DialogAnimationMode getAnimationMode() {
+        return animationMode;
+    }
+
+    /**
+     * System animator duration scale the transition ran with
+     */
+    public float getDurationScale() {
+        return durationScale;
+    }
+
+    /**
+     * Display refresh interval, i.e. the budget of one frame
+     */
+    public long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    /**
+     * Frames rendered during the transition
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Frames that took longer than their budget
+     */
+    public int getJankyFrames() {
+        return jankyFrames;
+    }
+
+    /**
+     * Vsyncs missed by janky frames, i.e. frames the display had to repeat
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+
+    public long getAverageFrameNanos() {
+        return frameCount == 0 ? 0 : totalFrameNanos / frameCount;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "DialogFrameStats{" + kind + " " + transition
+                + ", mode=" + animationMode
+                + ", frames=" + frameCount
+                + ", janky=" + jankyFrames
+                + ", dropped=" + droppedFrames
+                + ", avgMs=" + getAverageFrameNanos() / 1_000_000f
+                + ", maxMs=" + maxFrameNanos / 1_000_000f
+                + ", budgetMs=" + frameIntervalNanos / 1_000_000f + "}";
+    }
+}
@@ -0,0 +1,193 @@
+package com.qdesk.permissionhelper.ui;
+
+import android.app.Dialog;
+import android.provider.Settings;
+import android.view.View;
+import android.view.ViewPropertyAnimator;
+import android.view.ViewTreeObserver;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.Animation;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+/**
+ * Show and dismiss transitions of a permission dialog's container, with optional
+ * frame-time reporting. All methods must be called on the main thread.
+ */
+final class DialogTransition {
+
+    // Same timings as res/anim/dialog_fade_in and res/anim/slide_up
+    private static final long RATIONALE_ENTER_MS = 300;
+    private static final long SETTINGS_PROMPT_ENTER_MS = 350;
+    private static final long RATIONALE_EXIT_MS = 200;
+    private static final long SETTINGS_PROMPT_EXIT_MS = 250;
+    private static final float RATIONALE_FROM_SCALE = 0.9f;
+
+    private static final Interpolator ENTER_INTERPOLATOR = new DecelerateInterpolator();
+    private static final Interpolator EXIT_INTERPOLATOR = new AccelerateInterpolator();
+
+    private final Dialog dialog;
+    private final DialogFrameStats.Kind kind;
+    private DialogAnimationMode mode = DialogAnimationMode.VIEW_ANIMATION;
+    private DialogFrameStats.OnFrameStatsListener frameStatsListener;
+    private FrameStatsTracker tracker;
+    private boolean exiting;
+
+    DialogTransition(Dialog dialog, DialogFrameStats.Kind kind) {
+        this.dialog = dialog;
+        this.kind = kind;
+    }
+
+    void setMode(DialogAnimationMode mode) {
+        this.mode = mode;
+    }
+
+    DialogAnimationMode getMode() {
+        return mode;
+    }
+
+    void setOnFrameStatsListener(DialogFrameStats.OnFrameStatsListener listener) {
+        this.frameStatsListener = listener;
+    }
+
+    /**
+     * True once a dismiss transition has started; further input should be ignored
+     */
+    boolean isExiting() {
+        return exiting;
+    }
+
+    /**
+     * Show with a legacy view animation
+     */
+    void startViewAnimation(View container, Animation animation) {
+        if (frameStatsListener == null) {
+            animation.setAnimationListener(null);
+        } else {
+            startTracking(DialogFrameStats.Transition.SHOW, 1f);
+            animation.setAnimationListener(new Animation.AnimationListener() {
+                @Override
+                public void onAnimationStart(Animation a) {
+                }
+
+                @Override
+                public void onAnimationEnd(Animation a) {
+                    finishTracking();
+                }
+
+                @Override
+                public void onAnimationRepeat(Animation a) {
+                }
+            });
+        }
+        container.startAnimation(animation);
+    }
+
+    /**
+     * Show with property animators on a hardware layer
+     */
+    void animateIn(View container) {
+        float durationScale = durationScale();
+        reset(container);
+        if (durationScale == 0f) return;
+
+        container.setAlpha(0f);
+        if (kind == DialogFrameStats.Kind.RATIONALE) {
+            container.setScaleX(RATIONALE_FROM_SCALE);
+            container.setScaleY(RATIONALE_FROM_SCALE);
+        }
+
+        // The slide distance is the container's height, known only once it is laid out
+        container.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                container.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (exiting) return true;
+
+                ViewPropertyAnimator animator = container.animate()
+                        .alpha(1f)
+                        .setInterpolator(ENTER_INTERPOLATOR)
+                        .withLayer();
+                if (kind == DialogFrameStats.Kind.RATIONALE) {
+                    animator.scaleX(1f).scaleY(1f).setDuration(RATIONALE_ENTER_MS);
+                } else {
+                    container.setTranslationY(container.getHeight());
+                    animator.translationY(0f).setDuration(SETTINGS_PROMPT_ENTER_MS);
+                }
+                startTracking(DialogFrameStats.Transition.SHOW, durationScale);
+                animator.withEndAction(DialogTransition.this::finishTracking);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Run the dismiss transition, then the action that actually dismisses the dialog.
+     * Without property animation the action runs right away.
+     */
+    void animateOut(View container, Runnable dismissAction) {
+        if (exiting) return;
+        exiting = true;
+
+        float durationScale = mode == DialogAnimationMode.PROPERTY_ANIMATOR ? durationScale() : 0f;
+        if (durationScale == 0f || container == null) {
+            dismissAction.run();
+            return;
+        }
+
+        finishTracking();
+        container.animate().cancel();
+        ViewPropertyAnimator animator = container.animate()
+                .alpha(0f)
+                .setInterpolator(EXIT_INTERPOLATOR)
+                .withLayer();
+        if (kind == DialogFrameStats.Kind.RATIONALE) {
+            animator.scaleX(RATIONALE_FROM_SCALE).scaleY(RATIONALE_FROM_SCALE).setDuration(RATIONALE_EXIT_MS);
+        } else {
+            animator.translationY(container.getHeight()).setDuration(SETTINGS_PROMPT_EXIT_MS);
+        }
+        startTracking(DialogFrameStats.Transition.DISMISS, durationScale);
+        animator.withEndAction(() -> {
+            finishTracking();
+            // Skip if the dialog was already dismissed, e.g. by its activity going away
+            if (dialog.isShowing()) dismissAction.run();
+        });
+    }
+
+    /**
+     * Stop any transition and restore the container, e.g. before its view is reused
+     */
+    void stop(View container) {
+        finishTracking();
+        exiting = false;
+        if (container != null) {
+            container.clearAnimation();
+            reset(container);
+        }
+    }
+
+    private void startTracking(DialogFrameStats.Transition transition, float durationScale) {
+        if (frameStatsListener == null) return;
+        finishTracking();
+        tracker = FrameStatsTracker.start(dialog.getWindow(), kind, transition, mode, durationScale);
+    }
+
+    private void finishTracking() {
+        if (tracker == null) return;
+        tracker.finish(frameStatsListener);
+        tracker = null;
+    }
+
+    private float durationScale() {
+        return Settings.Global.getFloat(dialog.getContext().getContentResolver(),
+                Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+    }
+
+    private static void reset(View container) {
+        container.animate().cancel();
+        container.setAlpha(1f);
+        container.setScaleX(1f);
+        container.setScaleY(1f);
+        container.setTranslationY(0f);
+    }
+}
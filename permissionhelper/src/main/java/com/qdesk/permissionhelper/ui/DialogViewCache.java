@@ -0,0 +1,149 @@
+package com.qdesk.permissionhelper.ui;
+
+import android.content.Context;
+import android.util.TypedValue;
+import android.view.ContextThemeWrapper;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
+import android.widget.FrameLayout;
+
+import com.qdesk.permissionhelper.R;
+
+/**
+ * Pre-inflated dialog views and loaded animations, reused across shows.
+ * <p>
+ * Views are bound to the context they were inflated with, so one cache
+ * belongs to one activity and must be cleared when that activity goes away.
+ * They are inflated with the same dialog theme the dialogs themselves use.
+ * All methods must be called on the main thread.
+ */
+public class DialogViewCache {
+
+    private Context context;
+    private View permissionView;
+    private View settingsPromptView;
+    private Animation fadeInAnimation;
+    private Animation slideUpAnimation;
+    private boolean warmUpScheduled;
+    private boolean released;
+
+    public DialogViewCache(Context context) {
+        this.context = dialogThemed(context);
+    }
+
+    /**
+     * Inflate both dialog layouts and load their animations the next time the
+     * main thread is idle, off the critical path of the first show
+     */
+    public void warmUp() {
+        if (warmUpScheduled) return;
+        warmUpScheduled = true;
+
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            private int step;
+
+            @Override
+            public boolean queueIdle() {
+                if (released) return false;
+
+                // One unit of work per idle pass to keep each frame short
+                switch (step++) {
+                    case 0:
+                        if (permissionView == null) permissionView = inflate(R.layout.dialog_permission);
+                        return true;
+                    case 1:
+                        if (settingsPromptView == null) settingsPromptView = inflate(R.layout.dialog_settings_prompt);
+                        return true;
+                    default:
+                        getFadeInAnimation();
+                        getSlideUpAnimation();
+                        return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Take the rationale dialog view, inflating it if nothing is cached
+     */
+    View takePermissionView() {
+        View view = permissionView != null ? permissionView : inflate(R.layout.dialog_permission);
+        permissionView = null;
+        return view;
+    }
+
+    void releasePermissionView(View view) {
+        if (released) return;
+        permissionView = detach(view);
+    }
+
+    /**
+     * Take the settings prompt view, inflating it if nothing is cached
+     */
+    View takeSettingsPromptView() {
+        View view = settingsPromptView != null ? settingsPromptView : inflate(R.layout.dialog_settings_prompt);
+        settingsPromptView = null;
+        return view;
+    }
+
+    void releaseSettingsPromptView(View view) {
+        if (released) return;
+        settingsPromptView = detach(view);
+    }
+
+    Animation getFadeInAnimation() {
+        if (fadeInAnimation == null) {
+            fadeInAnimation = AnimationUtils.loadAnimation(context, R.anim.dialog_fade_in);
+        }
+        fadeInAnimation.reset();
+        return fadeInAnimation;
+    }
+
+    Animation getSlideUpAnimation() {
+        if (slideUpAnimation == null) {
+            slideUpAnimation = AnimationUtils.loadAnimation(context, R.anim.slide_up);
+        }
+        slideUpAnimation.reset();
+        return slideUpAnimation;
+    }
+
+    /**
+     * Drop every cached view and animation and the context; the cache must not be used afterwards
+     */
+    public void clear() {
+        released = true;
+        context = null;
+        permissionView = null;
+        settingsPromptView = null;
+        fadeInAnimation = null;
+        slideUpAnimation = null;
+    }
+
+    /**
+     * Wrap a context the way {@link android.app.Dialog} does, so cached views resolve
+     * theme attributes such as textColorPrimary exactly like views inflated by the dialog
+     */
+    private static Context dialogThemed(Context context) {
+        TypedValue outValue = new TypedValue();
+        context.getTheme().resolveAttribute(android.R.attr.dialogTheme, outValue, true);
+        return new ContextThemeWrapper(context, outValue.resourceId);
+    }
+
+    private View inflate(int layoutRes) {
+        // Inflate against a throwaway parent so the root keeps its XML layout params
+        return LayoutInflater.from(context).inflate(layoutRes, new FrameLayout(context), false);
+    }
+
+    private static View detach(View view) {
+        view.clearAnimation();
+        if (view.getParent() instanceof ViewGroup) {
+            ((ViewGroup) view.getParent()).removeView(view);
+        }
+        return view;
+    }
+}
@@ -0,0 +1,125 @@
+package com.qdesk.permissionhelper.ui;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+/**
+ * Collects the FrameMetrics of a window for the duration of one transition.
+ * Started and finished on the main thread; metrics arrive on a shared background thread.
+ */
+final class FrameStatsTracker implements Window.OnFrameMetricsAvailableListener {
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1_000_000_000L / 60;
+    // Metrics are delivered after the RenderThread is done with a frame, so the
+    // last frames of a transition arrive a little after its end action has run
+    private static final long REPORT_DELAY_MS = 100;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static Handler metricsHandler;
+
+    private final Window window;
+    private final DialogFrameStats.Kind kind;
+    private final DialogFrameStats.Transition transition;
+    private final DialogAnimationMode animationMode;
+    private final float durationScale;
+    private final long frameIntervalNanos;
+    private final long startNanos;
+    private long endNanos = Long.MAX_VALUE;
+    private int frameCount;
+    private int jankyFrames;
+    private int droppedFrames;
+    private long totalFrameNanos;
+    private long maxFrameNanos;
+
+    private FrameStatsTracker(Window window, DialogFrameStats.Kind kind, DialogFrameStats.Transition transition,
+                              DialogAnimationMode animationMode, float durationScale) {
+        this.window = window;
+        this.kind = kind;
+        this.transition = transition;
+        this.animationMode = animationMode;
+        this.durationScale = durationScale;
+        this.frameIntervalNanos = frameInterval(window);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start collecting the frames of a window, or return null if it has none yet
+     */
+    static FrameStatsTracker start(Window window, DialogFrameStats.Kind kind, DialogFrameStats.Transition transition,
+                                   DialogAnimationMode animationMode, float durationScale) {
+        if (window == null || window.peekDecorView() == null) return null;
+
+        FrameStatsTracker tracker = new FrameStatsTracker(window, kind, transition, animationMode, durationScale);
+        window.addOnFrameMetricsAvailableListener(tracker, metricsHandler());
+        return tracker;
+    }
+
+    /**
+     * Stop at the current frame and report once the in-flight metrics have arrived
+     */
+    void finish(DialogFrameStats.OnFrameStatsListener listener) {
+        synchronized (this) {
+            endNanos = System.nanoTime();
+        }
+        mainHandler.postDelayed(() -> {
+            try {
+                window.removeOnFrameMetricsAvailableListener(this);
+            } catch (IllegalArgumentException e) {
+                // Never registered, e.g. the window is not hardware accelerated
+            }
+            if (listener != null) listener.onFrameStats(snapshot());
+        }, REPORT_DELAY_MS);
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        long duration = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        long budget = frameIntervalNanos;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            long deadline = frameMetrics.getMetric(FrameMetrics.DEADLINE);
+            if (deadline > 0) budget = deadline;
+        }
+
+        synchronized (this) {
+            // Before O there are no timestamps; an idle dialog draws nothing, so
+            // frames up to removal of the listener still belong to the transition
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                long vsync = frameMetrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP);
+                if (vsync < startNanos || vsync > endNanos) return;
+            }
+
+            frameCount++;
+            totalFrameNanos += duration;
+            maxFrameNanos = Math.max(maxFrameNanos, duration);
+            if (duration > budget) {
+                jankyFrames++;
+                droppedFrames += (int) ((duration - 1) / budget);
+            }
+        }
+    }
+
+    private synchronized DialogFrameStats snapshot() {
+        return new DialogFrameStats(kind, transition, animationMode, durationScale, frameIntervalNanos,
+                frameCount, jankyFrames, droppedFrames, totalFrameNanos, maxFrameNanos);
+    }
+
+    private static long frameInterval(Window window) {
+        Display display = window.getDecorView().getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 0f;
+        return refreshRate > 0f ? (long) (1_000_000_000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+    }
+
+    private static synchronized Handler metricsHandler() {
+        if (metricsHandler == null) {
+            HandlerThread thread = new HandlerThread("PermissionFrameMetrics");
+            thread.start();
+            metricsHandler = new Handler(thread.getLooper());
+        }
+        return metricsHandler;
+    }
+}
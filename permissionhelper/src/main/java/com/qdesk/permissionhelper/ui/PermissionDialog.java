@@ -33,10 +33,14 @@ public class PermissionDialog extends Dialog {
     private String title;
     private String message;
     private int iconRes;
+    private DialogViewCache viewCache;
+    private final DialogTransition transition;
+    private View contentView;
     private OnPermissionDialogListener listener;
 
     public PermissionDialog(Context context, String title, String message, int iconRes) {
         super(context);
+        this.transition = new DialogTransition(this, DialogFrameStats.Kind.RATIONALE);
         this.title = title;
         this.message = message;
         this.iconRes = iconRes;
@@ -52,7 +56,12 @@ public class PermissionDialog extends Dialog {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.dialog_permission);
+        if (viewCache != null) {
+            contentView = viewCache.takePermissionView();
+            setContentView(contentView, contentView.getLayoutParams());
+        } else {
+            setContentView(R.layout.dialog_permission);
+        }
 
         setupViews();
         setupAnimations();
@@ -70,13 +79,15 @@ public class PermissionDialog extends Dialog {
         messageView.setText(message);
 
         allowButton.setOnClickListener(v -> {
+            if (transition.isExiting()) return;
             if (listener != null) listener.onAllow();
-            dismiss();
+            transition.animateOut(findViewById(R.id.dialog_container), this::dismiss);
         });
 
         denyButton.setOnClickListener(v -> {
+            if (transition.isExiting()) return;
             if (listener != null) listener.onDeny();
-            dismiss();
+            transition.animateOut(findViewById(R.id.dialog_container), this::dismiss);
         });
 
         setOnCancelListener(dialog -> {
@@ -86,7 +97,51 @@ public class PermissionDialog extends Dialog {
 
     private void setupAnimations() {
         View dialogContainer = findViewById(R.id.dialog_container);
-        dialogContainer.startAnimation(AnimationUtils.loadAnimation(getContext(), R.anim.dialog_fade_in));
+        if (transition.getMode() == DialogAnimationMode.PROPERTY_ANIMATOR) {
+            transition.animateIn(dialogContainer);
+        } else {
+            transition.startViewAnimation(dialogContainer, viewCache != null
+                    ? viewCache.getFadeInAnimation()
+                    : AnimationUtils.loadAnimation(getContext(), R.anim.dialog_fade_in));
+        }
+    }
+
+    @Override
+    public void cancel() {
+        // Back press and outside touch dismiss through the same transition as the buttons
+        transition.animateOut(findViewById(R.id.dialog_container), super::cancel);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        transition.stop(findViewById(R.id.dialog_container));
+        // Hand the view back for the next show
+        if (viewCache != null && contentView != null) {
+            viewCache.releasePermissionView(contentView);
+            contentView = null;
+        }
+    }
+
+    /**
+     * Reuse pre-inflated views and loaded animations; must be set before the dialog is shown
+     */
+    public void setViewCache(DialogViewCache viewCache) {
+        this.viewCache = viewCache;
+    }
+
+    /**
+     * Animation used for show and dismiss; must be set before the dialog is shown
+     */
+    public void setAnimationMode(DialogAnimationMode mode) {
+        transition.setMode(mode);
+    }
+
+    /**
+     * Receive frame timings of the show and dismiss transitions, or null to stop measuring
+     */
+    public void setOnFrameStatsListener(DialogFrameStats.OnFrameStatsListener listener) {
+        transition.setOnFrameStatsListener(listener);
     }
 
     public void setOnPermissionDialogListener(OnPermissionDialogListener listener) {
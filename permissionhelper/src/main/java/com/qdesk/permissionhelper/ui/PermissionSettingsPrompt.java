@@ -32,10 +32,14 @@ public class PermissionSettingsPrompt extends Dialog {
 
     private String title;
     private String message;
+    private DialogViewCache viewCache;
+    private final DialogTransition transition;
+    private View contentView;
     private OnSettingsPromptListener listener;
 
     public PermissionSettingsPrompt(Context context, String title, String message) {
         super(context);
+        this.transition = new DialogTransition(this, DialogFrameStats.Kind.SETTINGS_PROMPT);
         this.title = title;
         this.message = message;
 
@@ -53,7 +57,12 @@ public class PermissionSettingsPrompt extends Dialog {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.dialog_settings_prompt);
+        if (viewCache != null) {
+            contentView = viewCache.takeSettingsPromptView();
+            setContentView(contentView, contentView.getLayoutParams());
+        } else {
+            setContentView(R.layout.dialog_settings_prompt);
+        }
 
         setupViews();
         setupAnimations();
@@ -69,13 +78,15 @@ public class PermissionSettingsPrompt extends Dialog {
         messageView.setText(message);
 
         openSettingsButton.setOnClickListener(v -> {
+            if (transition.isExiting()) return;
             if (listener != null) listener.onOpenSettings();
-            dismiss();
+            transition.animateOut(findViewById(R.id.settings_prompt_container), this::dismiss);
         });
 
         cancelButton.setOnClickListener(v -> {
+            if (transition.isExiting()) return;
             if (listener != null) listener.onCancel();
-            dismiss();
+            transition.animateOut(findViewById(R.id.settings_prompt_container), this::dismiss);
         });
 
         setOnCancelListener(dialog -> {
@@ -85,7 +96,51 @@ public class PermissionSettingsPrompt extends Dialog {
 
     private void setupAnimations() {
         View promptContainer = findViewById(R.id.settings_prompt_container);
-        promptContainer.startAnimation(AnimationUtils.loadAnimation(getContext(), R.anim.slide_up));
+        if (transition.getMode() == DialogAnimationMode.PROPERTY_ANIMATOR) {
+            transition.animateIn(promptContainer);
+        } else {
+            transition.startViewAnimation(promptContainer, viewCache != null
+                    ? viewCache.getSlideUpAnimation()
+                    : AnimationUtils.loadAnimation(getContext(), R.anim.slide_up));
+        }
+    }
+
+    @Override
+    public void cancel() {
+        // Back press and outside touch dismiss through the same transition as the buttons
+        transition.animateOut(findViewById(R.id.settings_prompt_container), super::cancel);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        transition.stop(findViewById(R.id.settings_prompt_container));
+        // Hand the view back for the next show
+        if (viewCache != null && contentView != null) {
+            viewCache.releaseSettingsPromptView(contentView);
+            contentView = null;
+        }
+    }
+
+    /**
+     * Reuse pre-inflated views and loaded animations; must be set before the dialog is shown
+     */
+    public void setViewCache(DialogViewCache viewCache) {
+        this.viewCache = viewCache;
+    }
+
+    /**
+     * Animation used for show and dismiss; must be set before the dialog is shown
+     */
+    public void setAnimationMode(DialogAnimationMode mode) {
+        transition.setMode(mode);
+    }
+
+    /**
+     * Receive frame timings of the show and dismiss transitions, or null to stop measuring
+     */
+    public void setOnFrameStatsListener(DialogFrameStats.OnFrameStatsListener listener) {
+        transition.setOnFrameStatsListener(listener);
     }
 
     public void setOnSettingsPromptListener(OnSettingsPromptListener listener) {
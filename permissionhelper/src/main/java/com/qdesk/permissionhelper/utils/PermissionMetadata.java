@@ -0,0 +1,59 @@
+package com.qdesk.permissionhelper.utils;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+
+/**
+ * Immutable display metadata for one permission
+ */
+public final class PermissionMetadata {
+
+    private final String permission;
+    private final String displayName;
+    private final String title;
+    private final String rationale;
+    private final int iconRes;
+
+    public PermissionMetadata(@NonNull String permission, @NonNull String displayName,
+                              @NonNull String title, @NonNull String rationale, @DrawableRes int iconRes) {
+        this.permission = permission.intern();
+        this.displayName = displayName;
+        this.title = title;
+        this.rationale = rationale;
+        this.iconRes = iconRes;
+    }
+
+    @NonNull
+    public String getPermission() {
+        return permission;
+    }
+
+    /**
+     * Short user-friendly name, e.g. "Camera"
+     */
+    @NonNull
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Title of the rationale dialog
+     */
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Message of the rationale dialog
+     */
+    @NonNull
+    public String getRationale() {
+        return rationale;
+    }
+
+    @DrawableRes
+    public int getIconRes() {
+        return iconRes;
+    }
+}
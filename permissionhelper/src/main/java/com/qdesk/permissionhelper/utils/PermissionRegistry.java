@@ -0,0 +1,257 @@
+package com.qdesk.permissionhelper.utils;
+
+import android.Manifest;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.qdesk.permissionhelper.R;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable registry of permission metadata.
+ * <p>
+ * Keys are interned and kept in a sorted array next to a parallel metadata
+ * array, so a lookup is one binary search with an identity check per probe
+ * and no boxing. Apps can build their own registry at startup and install it
+ * with {@link #setDefault(PermissionRegistry)}.
+ */
+public final class PermissionRegistry {
+
+    private static volatile PermissionRegistry defaultRegistry;
+
+    private final String[] keys;
+    private final PermissionMetadata[] values;
+
+    private PermissionRegistry(String[] keys, PermissionMetadata[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Get the registry used by the library, built from the defaults on first use
+     */
+    @NonNull
+    public static PermissionRegistry getDefault() {
+        PermissionRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (PermissionRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = new Builder().addDefaults().build();
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Replace the registry used by the library, e.g. one that adds app-specific permissions
+     */
+    public static void setDefault(@NonNull PermissionRegistry registry) {
+        defaultRegistry = registry;
+    }
+
+    /**
+     * Find the metadata of a permission
+     * @return The metadata, or null if the permission is not registered
+     */
+    @Nullable
+    public PermissionMetadata find(@NonNull String permission) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            String key = keys[mid];
+            if (key == permission) return values[mid];
+
+            int cmp = key.compareTo(permission);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return values[mid];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Builder for a registry; later entries replace earlier ones with the same permission
+     */
+    public static final class Builder {
+
+        private final Map<String, PermissionMetadata> entries = new LinkedHashMap<>();
+
+        @NonNull
+        public Builder add(@NonNull PermissionMetadata metadata) {
+            entries.put(metadata.getPermission(), metadata);
+            return this;
+        }
+
+        @NonNull
+        public Builder add(@NonNull String permission, @NonNull String displayName,
+                           @NonNull String title, @NonNull String rationale, int iconRes) {
+            return add(new PermissionMetadata(permission, displayName, title, rationale, iconRes));
+        }
+
+        /**
+         * Add the metadata shipped with the library, covering the platform runtime permissions
+         */
+        @NonNull
+        public Builder addDefaults() {
+            // Camera Permission
+            add(Manifest.permission.CAMERA, "Camera", "Camera Access Required",
+                    "This app needs camera access to take photos and videos. Please allow camera permission to continue.",
+                    R.drawable.ic_camera);
+
+            // Storage Permission
+            add(Manifest.permission.WRITE_EXTERNAL_STORAGE, "Storage", "Storage Access Required",
+                    "This app needs storage access to save and manage your files. Please allow storage permission to continue.",
+                    R.drawable.ic_storage);
+            add(Manifest.permission.READ_EXTERNAL_STORAGE, "Storage", "Storage Access Required",
+                    "This app needs storage access to read and manage your files. Please allow storage permission to continue.",
+                    R.drawable.ic_storage);
+            add(Manifest.permission.ACCESS_MEDIA_LOCATION, "Media Location", "Media Location Access Required",
+                    "This app needs access to the locations saved in your photos. Please allow this permission to continue.",
+                    R.drawable.ic_location);
+
+            // Media Permissions (Android 13+)
+            add(Manifest.permission.READ_MEDIA_IMAGES, "Photos", "Photos Access Required",
+                    "This app needs access to your photos to show and manage them. Please allow photos permission to continue.",
+                    R.drawable.ic_storage);
+            add(Manifest.permission.READ_MEDIA_VIDEO, "Videos", "Videos Access Required",
+                    "This app needs access to your videos to show and manage them. Please allow videos permission to continue.",
+                    R.drawable.ic_storage);
+            add(Manifest.permission.READ_MEDIA_AUDIO, "Music and Audio", "Audio Access Required",
+                    "This app needs access to your music and audio files. Please allow audio permission to continue.",
+                    R.drawable.ic_storage);
+            add(Manifest.permission.READ_MEDIA_VISUAL_USER_SELECTED, "Photos and Videos", "Photos Access Required",
+                    "This app needs access to the photos and videos you select. Please allow this permission to continue.",
+                    R.drawable.ic_storage);
+
+            // Location Permission
+            add(Manifest.permission.ACCESS_FINE_LOCATION, "Location", "Location Access Required",
+                    "This app needs location access to provide location-based features. Please allow location permission to continue.",
+                    R.drawable.ic_location);
+            add(Manifest.permission.ACCESS_COARSE_LOCATION, "Location", "Location Access Required",
+                    "This app needs location access to provide location-based features. Please allow location permission to continue.",
+                    R.drawable.ic_location);
+            add(Manifest.permission.ACCESS_BACKGROUND_LOCATION, "Background Location", "Background Location Required",
+                    "This app needs location access while in the background to keep location-based features running. Please allow this permission to continue.",
+                    R.drawable.ic_location);
+
+            // Microphone Permission
+            add(Manifest.permission.RECORD_AUDIO, "Microphone", "Microphone Access Required",
+                    "This app needs microphone access to record audio. Please allow microphone permission to continue.",
+                    R.drawable.ic_microphone);
+
+            // Contacts Permission
+            add(Manifest.permission.READ_CONTACTS, "Contacts", "Contacts Access Required",
+                    "This app needs contacts access to help you connect with friends. Please allow contacts permission to continue.",
+                    R.drawable.ic_contacts);
+            add(Manifest.permission.WRITE_CONTACTS, "Contacts", "Contacts Access Required",
+                    "This app needs contacts access to manage your contacts. Please allow contacts permission to continue.",
+                    R.drawable.ic_contacts);
+            add(Manifest.permission.GET_ACCOUNTS, "Contacts", "Contacts Access Required",
+                    "This app needs access to the accounts on this device. Please allow contacts permission to continue.",
+                    R.drawable.ic_contacts);
+
+            // Phone Permission
+            add(Manifest.permission.CALL_PHONE, "Phone", "Phone Access Required",
+                    "This app needs phone access to make calls. Please allow phone permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.READ_PHONE_STATE, "Phone", "Phone Access Required",
+                    "This app needs phone access to read the phone state. Please allow phone permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.READ_PHONE_NUMBERS, "Phone", "Phone Access Required",
+                    "This app needs phone access to read your phone number. Please allow phone permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.ANSWER_PHONE_CALLS, "Phone", "Phone Access Required",
+                    "This app needs phone access to answer calls. Please allow phone permission to continue.",
+                    R.drawable.ic_permission_default);
+
+            // Call Log Permission
+            add(Manifest.permission.READ_CALL_LOG, "Call Logs", "Call Log Access Required",
+                    "This app needs call log access to show your recent calls. Please allow call log permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.WRITE_CALL_LOG, "Call Logs", "Call Log Access Required",
+                    "This app needs call log access to manage your call history. Please allow call log permission to continue.",
+                    R.drawable.ic_permission_default);
+
+            // SMS Permission
+            add(Manifest.permission.SEND_SMS, "SMS", "SMS Access Required",
+                    "This app needs SMS access to send messages. Please allow SMS permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.RECEIVE_SMS, "SMS", "SMS Access Required",
+                    "This app needs SMS access to receive messages. Please allow SMS permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.READ_SMS, "SMS", "SMS Access Required",
+                    "This app needs SMS access to read your messages. Please allow SMS permission to continue.",
+                    R.drawable.ic_permission_default);
+
+            // Calendar Permission
+            add(Manifest.permission.READ_CALENDAR, "Calendar", "Calendar Access Required",
+                    "This app needs calendar access to show your events. Please allow calendar permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.WRITE_CALENDAR, "Calendar", "Calendar Access Required",
+                    "This app needs calendar access to manage your events. Please allow calendar permission to continue.",
+                    R.drawable.ic_permission_default);
+
+            // Sensors & Activity Permission
+            add(Manifest.permission.BODY_SENSORS, "Body Sensors", "Body Sensors Access Required",
+                    "This app needs access to body sensors to track your vital signs. Please allow sensors permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.BODY_SENSORS_BACKGROUND, "Body Sensors", "Body Sensors Access Required",
+                    "This app needs access to body sensors while in the background. Please allow sensors permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.ACTIVITY_RECOGNITION, "Physical Activity", "Activity Access Required",
+                    "This app needs access to your physical activity to track steps and workouts. Please allow this permission to continue.",
+                    R.drawable.ic_permission_default);
+
+            // Nearby Devices Permission
+            add(Manifest.permission.BLUETOOTH_SCAN, "Nearby Devices", "Nearby Devices Access Required",
+                    "This app needs to find nearby devices to connect to them. Please allow nearby devices permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.BLUETOOTH_CONNECT, "Nearby Devices", "Nearby Devices Access Required",
+                    "This app needs to connect to nearby devices. Please allow nearby devices permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.BLUETOOTH_ADVERTISE, "Nearby Devices", "Nearby Devices Access Required",
+                    "This app needs to make this device visible to nearby devices. Please allow nearby devices permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.NEARBY_WIFI_DEVICES, "Nearby Devices", "Nearby Devices Access Required",
+                    "This app needs to find nearby Wi-Fi devices. Please allow nearby devices permission to continue.",
+                    R.drawable.ic_permission_default);
+            add(Manifest.permission.UWB_RANGING, "Nearby Devices", "Nearby Devices Access Required",
+                    "This app needs to measure the distance to nearby devices. Please allow nearby devices permission to continue.",
+                    R.drawable.ic_permission_default);
+
+            // Notification Permission (Android 13+)
+            add(Manifest.permission.POST_NOTIFICATIONS, "Notifications", "Notification Permission Required",
+                    "This app needs to send you notifications to keep you up to date. Please allow notification permission to continue.",
+                    R.drawable.ic_permission_default);
+            return this;
+        }
+
+        @NonNull
+        public PermissionRegistry build() {
+            String[] keys = entries.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+
+            PermissionMetadata[] values = new PermissionMetadata[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = entries.get(keys[i]);
+                keys[i] = values[i].getPermission();
+            }
+            return new PermissionRegistry(keys, values);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.qdesk.permissionhelper.core;
+
+import org.junit.Test;
+
+import static com.qdesk.permissionhelper.core.RationalePolicy.Decision;
+import static com.qdesk.permissionhelper.core.RationalePolicyTest.stats;
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveRationalePolicyTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+
+    private final AdaptiveRationalePolicy policy = new AdaptiveRationalePolicy(4, 0.25f, 3);
+
+    @Test
+    public void fewSamples_behavesLikeDefault() {
+        PermissionStats stats = stats(1, 3, 0);
+
+        assertEquals(RationalePolicy.DEFAULT.onRequest(CAMERA, stats, true), policy.onRequest(CAMERA, stats, true));
+        assertEquals(RationalePolicy.DEFAULT.onDenied(CAMERA, stats, true, 0),
+                policy.onDenied(CAMERA, stats, true, 0));
+        assertEquals(Decision.REQUEST, policy.onRequest(CAMERA, stats, false));
+    }
+
+    @Test
+    public void ineffectiveRationale_isSkipped() {
+        PermissionStats stats = stats(1, 8, 1);
+
+        assertEquals(Decision.REQUEST, policy.onRequest(CAMERA, stats, true));
+        assertEquals(Decision.DENY, policy.onDenied(CAMERA, stats, true, 0));
+    }
+
+    @Test
+    public void effectiveRationale_isShown() {
+        PermissionStats stats = stats(1, 8, 2);
+
+        assertEquals(Decision.RATIONALE, policy.onRequest(CAMERA, stats, true));
+        assertEquals(Decision.RATIONALE, policy.onDenied(CAMERA, stats, true, 0));
+        assertEquals(Decision.DENY, policy.onDenied(CAMERA, stats, true, 1));
+    }
+
+    @Test
+    public void longDenyStreak_stopsOfferingSettings() {
+        assertEquals(Decision.REQUEST, policy.onRequest(CAMERA, stats(3, 0, 0), false));
+        assertEquals(Decision.SETTINGS, policy.onDenied(CAMERA, stats(2, 0, 0), false, 0));
+        assertEquals(Decision.DENY, policy.onDenied(CAMERA, stats(3, 0, 0), false, 0));
+    }
+}
@@ -0,0 +1,133 @@
+package com.qdesk.permissionhelper.core;
+
+import org.junit.Test;
+
+import static com.qdesk.permissionhelper.core.PermissionHistoryStore.DENY_COUNT_SHIFT;
+import static com.qdesk.permissionhelper.core.PermissionHistoryStore.DENY_STREAK_SHIFT;
+import static com.qdesk.permissionhelper.core.PermissionHistoryStore.RATIONALE_FIELD_MAX;
+import static com.qdesk.permissionhelper.core.PermissionHistoryStore.REQUEST_COUNT_SHIFT;
+import static org.junit.Assert.assertEquals;
+
+public class PermissionHistoryStoreTest {
+
+    private static final int COUNTER_MAX = 0xFFFF;
+
+    @Test
+    public void counters_areIndependent() {
+        long record = PermissionHistoryStore.increment(0L, REQUEST_COUNT_SHIFT);
+        record = PermissionHistoryStore.increment(record, REQUEST_COUNT_SHIFT);
+        record = PermissionHistoryStore.withDenied(record);
+        record = PermissionHistoryStore.withRationaleShown(record);
+        record = PermissionHistoryStore.withGrantedAfterRationale(record);
+
+        assertStats(PermissionHistoryStore.stats(record), 2, 1, 1, 1, 1);
+    }
+
+    @Test
+    public void increment_saturates() {
+        long record = 0L;
+        for (int i = 0; i < COUNTER_MAX + 10; i++) {
+            record = PermissionHistoryStore.increment(record, DENY_COUNT_SHIFT);
+        }
+
+        assertEquals(COUNTER_MAX, PermissionHistoryStore.field(record, DENY_COUNT_SHIFT));
+        // No carry into the neighbouring counters
+        assertEquals(0, PermissionHistoryStore.field(record, REQUEST_COUNT_SHIFT));
+        assertEquals(0, PermissionHistoryStore.field(record, DENY_STREAK_SHIFT));
+    }
+
+    @Test
+    public void streakReset_keepsOtherCounters() {
+        long record = PermissionHistoryStore.withDenied(PermissionHistoryStore.withDenied(0L));
+        record = PermissionHistoryStore.withRationaleShown(record);
+
+        record = PermissionHistoryStore.withStreakReset(record);
+
+        assertStats(PermissionHistoryStore.stats(record), 0, 2, 0, 1, 0);
+    }
+
+    @Test
+    public void rationaleShown_halvesBothCountersWhenFull() {
+        long record = rationale(RATIONALE_FIELD_MAX, 101);
+
+        record = PermissionHistoryStore.withRationaleShown(record);
+
+        PermissionStats stats = PermissionHistoryStore.stats(record);
+        assertEquals(RATIONALE_FIELD_MAX / 2 + 1, stats.getRationaleShownCount());
+        assertEquals(50, stats.getGrantedAfterRationaleCount());
+    }
+
+    @Test
+    public void grantedAfterRationale_isCappedAtShown() {
+        long record = rationale(2, 2);
+
+        record = PermissionHistoryStore.withGrantedAfterRationale(record);
+
+        assertEquals(2, PermissionHistoryStore.stats(record).getGrantedAfterRationaleCount());
+    }
+
+    @Test
+    public void merge_sumsCounters() {
+        long persisted = PermissionHistoryStore.withDenied(PermissionHistoryStore.increment(0L, REQUEST_COUNT_SHIFT));
+        long early = PermissionHistoryStore.withDenied(PermissionHistoryStore.increment(0L, REQUEST_COUNT_SHIFT));
+
+        long merged = PermissionHistoryStore.merge(persisted, early, false);
+
+        assertStats(PermissionHistoryStore.stats(merged), 2, 2, 2, 0, 0);
+    }
+
+    @Test
+    public void merge_grantedSinceLoad_dropsPersistedStreak() {
+        long persisted = PermissionHistoryStore.withDenied(PermissionHistoryStore.withDenied(0L));
+        long early = PermissionHistoryStore.withDenied(0L);
+
+        long merged = PermissionHistoryStore.merge(persisted, early, true);
+
+        assertEquals(3, PermissionHistoryStore.stats(merged).getDenyCount());
+        assertEquals(1, PermissionHistoryStore.stats(merged).getDenyStreak());
+    }
+
+    @Test
+    public void merge_saturatesCounters() {
+        long persisted = 0L;
+        for (int i = 0; i < COUNTER_MAX - 1; i++) {
+            persisted = PermissionHistoryStore.increment(persisted, REQUEST_COUNT_SHIFT);
+        }
+        long early = PermissionHistoryStore.increment(PermissionHistoryStore.increment(0L, REQUEST_COUNT_SHIFT),
+                REQUEST_COUNT_SHIFT);
+
+        long merged = PermissionHistoryStore.merge(persisted, early, false);
+
+        assertEquals(COUNTER_MAX, PermissionHistoryStore.field(merged, REQUEST_COUNT_SHIFT));
+        assertEquals(0, PermissionHistoryStore.field(merged, DENY_COUNT_SHIFT));
+    }
+
+    @Test
+    public void merge_halvesOverflowingRationaleCounters() {
+        long merged = PermissionHistoryStore.merge(rationale(200, 100), rationale(100, 20), false);
+
+        PermissionStats stats = PermissionHistoryStore.stats(merged);
+        assertEquals(150, stats.getRationaleShownCount());
+        assertEquals(60, stats.getGrantedAfterRationaleCount());
+    }
+
+    private static long rationale(int shown, int granted) {
+        long record = 0L;
+        for (int i = 0; i < shown; i++) {
+            record = PermissionHistoryStore.withRationaleShown(record);
+        }
+        for (int i = 0; i < granted; i++) {
+            record = PermissionHistoryStore.withGrantedAfterRationale(record);
+        }
+        return record;
+    }
+
+    private static void assertStats(PermissionStats stats, int requests, int denials, int streak,
+                                    int rationaleShown, int grantedAfterRationale) {
+        assertEquals(requests, stats.getRequestCount());
+        assertEquals(denials, stats.getDenyCount());
+        assertEquals(streak, stats.getDenyStreak());
+        assertEquals(rationaleShown, stats.getRationaleShownCount());
+        assertEquals(grantedAfterRationale, stats.getGrantedAfterRationaleCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.qdesk.permissionhelper.core;
+
+import org.junit.Test;
+
+import static com.qdesk.permissionhelper.core.PermissionMetrics.Event;
+import static com.qdesk.permissionhelper.core.PermissionMetrics.Stage;
+import static org.junit.Assert.assertEquals;
+
+public class PermissionMetricsRecorderTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+
+    private final PermissionMetricsRecorder recorder = new PermissionMetricsRecorder();
+
+    @Test
+    public void noSamples_reportsZero() {
+        assertEquals(0, recorder.getSampleCount(Stage.CHECK));
+        assertEquals(0, recorder.getPercentileNanos(Stage.CHECK, 0.5));
+    }
+
+    @Test
+    public void percentile_isUpperBoundOfPowerOfTwoBucket() {
+        recorder.onStageCompleted(CAMERA, Stage.CHECK, 1);
+        recorder.onStageCompleted(CAMERA, Stage.CHECK, 1000);
+        recorder.onStageCompleted(CAMERA, Stage.CHECK, 1024);
+        recorder.onStageCompleted(CAMERA, Stage.CHECK, 1_000_000);
+
+        assertEquals(4, recorder.getSampleCount(Stage.CHECK));
+        assertEquals(1, recorder.getPercentileNanos(Stage.CHECK, 0.25));
+        // 1000 fits in 10 bits, 1024 needs 11
+        assertEquals(1023, recorder.getPercentileNanos(Stage.CHECK, 0.5));
+        assertEquals(2047, recorder.getPercentileNanos(Stage.CHECK, 0.75));
+        assertEquals((1L << 20) - 1, recorder.getPercentileNanos(Stage.CHECK, 1.0));
+    }
+
+    @Test
+    public void extremeDurations_landInEdgeBuckets() {
+        recorder.onStageCompleted(CAMERA, Stage.SYSTEM_PROMPT, -5);
+        recorder.onStageCompleted(CAMERA, Stage.SYSTEM_PROMPT, Long.MAX_VALUE);
+
+        assertEquals(0, recorder.getPercentileNanos(Stage.SYSTEM_PROMPT, 0.5));
+        assertEquals(Long.MAX_VALUE, recorder.getPercentileNanos(Stage.SYSTEM_PROMPT, 1.0));
+    }
+
+    @Test
+    public void stagesAndEvents_areCountedSeparately() {
+        recorder.onStageCompleted(CAMERA, Stage.RATIONALE, 100);
+        recorder.onEvent(CAMERA, Event.REQUESTED);
+        recorder.onEvent(CAMERA, Event.REQUESTED);
+        recorder.onEvent(CAMERA, Event.GRANTED);
+
+        assertEquals(0, recorder.getSampleCount(Stage.CHECK));
+        assertEquals(1, recorder.getSampleCount(Stage.RATIONALE));
+        assertEquals(2, recorder.getEventCount(Event.REQUESTED));
+        assertEquals(1, recorder.getEventCount(Event.GRANTED));
+        assertEquals(0, recorder.getEventCount(Event.DENIED));
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        recorder.onStageCompleted(CAMERA, Stage.CHECK, 100);
+        recorder.onEvent(CAMERA, Event.REQUESTED);
+
+        recorder.reset();
+
+        assertEquals(0, recorder.getSampleCount(Stage.CHECK));
+        assertEquals(0, recorder.getEventCount(Event.REQUESTED));
+    }
+}
@@ -0,0 +1,131 @@
+package com.qdesk.permissionhelper.core;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PermissionRequestRegistryTest {
+
+    private static final String[] CAMERA = {"android.permission.CAMERA"};
+    private static final String[] MICROPHONE = {"android.permission.RECORD_AUDIO"};
+
+    private final List<PermissionRequest> launched = new ArrayList<>();
+
+    @Test
+    public void register_handsOutUniqueCodes() {
+        PermissionRequestRegistry registry = new PermissionRequestRegistry();
+
+        PermissionRequest camera = registry.register(CAMERA[0], CAMERA, false);
+        PermissionRequest microphone = registry.register(MICROPHONE[0], MICROPHONE, false);
+
+        assertTrue(camera.requestCode != microphone.requestCode);
+        assertSame(camera, registry.find(CAMERA[0]));
+        assertSame(microphone, registry.get(microphone.requestCode));
+    }
+
+    @Test
+    public void remove_keepsNewerRequestForSameKey() {
+        PermissionRequestRegistry registry = new PermissionRequestRegistry();
+        PermissionRequest old = registry.register(CAMERA[0], CAMERA, false);
+        PermissionRequest newer = registry.register(CAMERA[0], CAMERA, false);
+
+        registry.remove(old);
+
+        assertSame(newer, registry.find(CAMERA[0]));
+        assertNull(registry.get(old.requestCode));
+    }
+
+    @Test
+    public void systemRequests_runOneAtATime() {
+        PermissionRequestRegistry registry = new PermissionRequestRegistry();
+        PermissionRequest camera = registry.register(CAMERA[0], CAMERA, false);
+        PermissionRequest microphone = registry.register(MICROPHONE[0], MICROPHONE, false);
+
+        assertSame(camera, registry.enqueueSystemRequest(camera));
+        assertNull(registry.enqueueSystemRequest(microphone));
+        // Enqueueing the active request again doesn't queue it twice
+        assertNull(registry.enqueueSystemRequest(camera));
+
+        assertSame(microphone, registry.completeSystemRequest(camera));
+        assertSame(microphone, registry.getActiveSystemRequest());
+        assertNull(registry.completeSystemRequest(microphone));
+        assertNull(registry.getActiveSystemRequest());
+    }
+
+    @Test
+    public void retainSystemRequests_dropsRequestsThatNeverReachedTheSystem() {
+        PermissionRequestRegistry registry = new PermissionRequestRegistry();
+        PermissionRequest camera = registry.register(CAMERA[0], CAMERA, false);
+        PermissionRequest microphone = registry.register(MICROPHONE[0], MICROPHONE, false);
+        registry.enqueueSystemRequest(camera);
+
+        registry.retainSystemRequests();
+
+        assertSame(camera, registry.get(camera.requestCode));
+        assertNull(registry.get(microphone.requestCode));
+        assertNull(registry.find(MICROPHONE[0]));
+    }
+
+    @Test
+    public void removingActiveRequest_launchesNext() {
+        PermissionRequestRegistry registry = new PermissionRequestRegistry();
+        registry.setLauncher(launched::add);
+        PermissionRequest camera = registry.register(CAMERA[0], CAMERA, false);
+        PermissionRequest microphone = registry.register(MICROPHONE[0], MICROPHONE, false);
+        registry.enqueueSystemRequest(camera);
+        registry.enqueueSystemRequest(microphone);
+
+        registry.remove(camera);
+
+        assertEquals(1, launched.size());
+        assertSame(microphone, launched.get(0));
+    }
+
+    @Test
+    public void sharedPromptQueue_handsTurnToOtherRegistry() {
+        SystemPromptQueue promptQueue = new SystemPromptQueue();
+        PermissionRequestRegistry activity = new PermissionRequestRegistry(promptQueue);
+        PermissionRequestRegistry fragment = new PermissionRequestRegistry(promptQueue);
+        fragment.setLauncher(launched::add);
+        PermissionRequest camera = activity.register(CAMERA[0], CAMERA, false);
+        PermissionRequest microphone = fragment.register(MICROPHONE[0], MICROPHONE, false);
+
+        assertSame(camera, activity.enqueueSystemRequest(camera));
+        assertNull(fragment.enqueueSystemRequest(microphone));
+        assertTrue(launched.isEmpty());
+
+        assertNull(activity.completeSystemRequest(camera));
+
+        assertEquals(1, launched.size());
+        assertSame(microphone, launched.get(0));
+        assertSame(microphone, fragment.getActiveSystemRequest());
+    }
+
+    @Test
+    public void detachedRegistry_resumesItsTurnLater() {
+        SystemPromptQueue promptQueue = new SystemPromptQueue();
+        PermissionRequestRegistry activity = new PermissionRequestRegistry(promptQueue);
+        PermissionRequestRegistry fragment = new PermissionRequestRegistry(promptQueue);
+        PermissionRequest camera = activity.register(CAMERA[0], CAMERA, false);
+        PermissionRequest microphone = fragment.register(MICROPHONE[0], MICROPHONE, false);
+        activity.enqueueSystemRequest(camera);
+        fragment.enqueueSystemRequest(microphone);
+
+        // No launcher attached: the fragment passes its turn and keeps its request queued
+        activity.completeSystemRequest(camera);
+        assertNull(fragment.getActiveSystemRequest());
+
+        assertSame(microphone, fragment.resumeSystemQueue());
+    }
+}
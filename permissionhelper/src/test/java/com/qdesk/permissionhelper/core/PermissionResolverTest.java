@@ -0,0 +1,84 @@
+package com.qdesk.permissionhelper.core;
+
+import android.Manifest;
+import android.os.Build;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class PermissionResolverTest {
+
+    private static final String[] NONE = new String[0];
+
+    @Test
+    public void unknownPermission_resolvesToItself() {
+        assertResolves(Manifest.permission.CAMERA, Build.VERSION_CODES.N, Manifest.permission.CAMERA);
+        assertResolves("com.example.permission.CUSTOM", Build.VERSION_CODES.VANILLA_ICE_CREAM,
+                "com.example.permission.CUSTOM");
+    }
+
+    @Test
+    public void writeExternalStorage_grantsNothingFromR() {
+        assertResolves(Manifest.permission.WRITE_EXTERNAL_STORAGE, Build.VERSION_CODES.Q,
+                Manifest.permission.WRITE_EXTERNAL_STORAGE);
+        assertResolves(Manifest.permission.WRITE_EXTERNAL_STORAGE, Build.VERSION_CODES.R);
+    }
+
+    @Test
+    public void readExternalStorage_splitsIntoMediaPermissionsFromTiramisu() {
+        assertResolves(Manifest.permission.READ_EXTERNAL_STORAGE, Build.VERSION_CODES.S_V2,
+                Manifest.permission.READ_EXTERNAL_STORAGE);
+        assertResolves(Manifest.permission.READ_EXTERNAL_STORAGE, Build.VERSION_CODES.TIRAMISU,
+                Manifest.permission.READ_MEDIA_IMAGES,
+                Manifest.permission.READ_MEDIA_VIDEO,
+                Manifest.permission.READ_MEDIA_AUDIO);
+    }
+
+    @Test
+    public void mediaPermission_fallsBackToReadExternalStorage() {
+        assertResolves(Manifest.permission.READ_MEDIA_IMAGES, Build.VERSION_CODES.S_V2,
+                Manifest.permission.READ_EXTERNAL_STORAGE);
+        assertResolves(Manifest.permission.READ_MEDIA_IMAGES, Build.VERSION_CODES.TIRAMISU,
+                Manifest.permission.READ_MEDIA_IMAGES);
+    }
+
+    @Test
+    public void newerRuntimePermissions_needNothingOnOlderReleases() {
+        assertResolves(Manifest.permission.POST_NOTIFICATIONS, Build.VERSION_CODES.S_V2);
+        assertResolves(Manifest.permission.POST_NOTIFICATIONS, Build.VERSION_CODES.TIRAMISU,
+                Manifest.permission.POST_NOTIFICATIONS);
+        assertResolves(Manifest.permission.BLUETOOTH_CONNECT, Build.VERSION_CODES.R);
+        assertResolves(Manifest.permission.BLUETOOTH_CONNECT, Build.VERSION_CODES.S,
+                Manifest.permission.BLUETOOTH_CONNECT);
+        assertResolves(Manifest.permission.ACTIVITY_RECOGNITION, Build.VERSION_CODES.P);
+        assertResolves(Manifest.permission.ACTIVITY_RECOGNITION, Build.VERSION_CODES.Q,
+                Manifest.permission.ACTIVITY_RECOGNITION);
+    }
+
+    @Test
+    public void bluetoothScan_needsLocationBeforeS() {
+        assertResolves(Manifest.permission.BLUETOOTH_SCAN, Build.VERSION_CODES.P,
+                Manifest.permission.ACCESS_COARSE_LOCATION);
+        assertResolves(Manifest.permission.BLUETOOTH_SCAN, Build.VERSION_CODES.R,
+                Manifest.permission.ACCESS_FINE_LOCATION);
+        assertResolves(Manifest.permission.BLUETOOTH_SCAN, Build.VERSION_CODES.S,
+                Manifest.permission.BLUETOOTH_SCAN);
+        for (int sdkInt = Build.VERSION_CODES.N; sdkInt <= Build.VERSION_CODES.VANILLA_ICE_CREAM; sdkInt++) {
+            assertArrayEquals(Capability.BLUETOOTH_SCAN.getPermissions(sdkInt),
+                    PermissionResolver.resolve(Manifest.permission.BLUETOOTH_SCAN, sdkInt));
+        }
+    }
+
+    @Test
+    public void readPhoneNumbers_fallsBackToReadPhoneState() {
+        assertResolves(Manifest.permission.READ_PHONE_NUMBERS, Build.VERSION_CODES.N_MR1,
+                Manifest.permission.READ_PHONE_STATE);
+        assertResolves(Manifest.permission.READ_PHONE_NUMBERS, Build.VERSION_CODES.O,
+                Manifest.permission.READ_PHONE_NUMBERS);
+    }
+
+    private static void assertResolves(String permission, int sdkInt, String... expected) {
+        assertArrayEquals(expected.length == 0 ? NONE : expected, PermissionResolver.resolve(permission, sdkInt));
+    }
+}
@@ -0,0 +1,46 @@
+package com.qdesk.permissionhelper.core;
+
+import org.junit.Test;
+
+import static com.qdesk.permissionhelper.core.RationalePolicy.Decision;
+import static org.junit.Assert.assertEquals;
+
+public class RationalePolicyTest {
+
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final PermissionStats NEW = stats(0, 0, 0);
+
+    private final RationalePolicy policy = RationalePolicy.DEFAULT;
+
+    @Test
+    public void onRequest_firstTime_requests() {
+        assertEquals(Decision.REQUEST, policy.onRequest(CAMERA, NEW, false));
+    }
+
+    @Test
+    public void onRequest_systemWantsRationale_explains() {
+        assertEquals(Decision.RATIONALE, policy.onRequest(CAMERA, stats(1, 0, 0), true));
+    }
+
+    @Test
+    public void onRequest_deniedBefore_stillAsksTheSystem() {
+        // The streak may be stale, e.g. after an auto-reset; a permanent denial returns without UI
+        assertEquals(Decision.REQUEST, policy.onRequest(CAMERA, stats(2, 0, 0), false));
+    }
+
+    @Test
+    public void onDenied_firstDenial_retriesOnce() {
+        assertEquals(Decision.RATIONALE, policy.onDenied(CAMERA, stats(1, 0, 0), true, 0));
+        assertEquals(Decision.DENY, policy.onDenied(CAMERA, stats(2, 0, 0), true, 1));
+    }
+
+    @Test
+    public void onDenied_permanentlyAfterEarlierDenial_sendsToSettings() {
+        assertEquals(Decision.SETTINGS, policy.onDenied(CAMERA, stats(2, 0, 0), false, 0));
+        assertEquals(Decision.SETTINGS, policy.onDenied(CAMERA, stats(1, 0, 0), false, 1));
+    }
+
+    static PermissionStats stats(int denyStreak, int rationaleShown, int grantedAfterRationale) {
+        return new PermissionStats(denyStreak, denyStreak, denyStreak, rationaleShown, grantedAfterRationale);
+    }
+}